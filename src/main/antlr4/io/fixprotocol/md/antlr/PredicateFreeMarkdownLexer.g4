@@ -0,0 +1,446 @@
+/*
+ * Markdown lexer without semantic predicates
+ *
+ * Emits the same tokens as MarkdownLexer. Instead of testing the preceding character with a
+ * predicate, tokens that end with a backslash switch to mode AFTER_BACKSLASH, which lacks the
+ * rules that start with an unescaped character. Likewise, fenced code blocks track the start of
+ * a line with mode FENCED_LINE. Without predicates, all DFA edges can be cached.
+ *
+ * Error recovery skips characters without emitting a token, so afterward the mode is selected by
+ * the last skipped character, as the predicates of MarkdownLexer would select rules.
+ */
+lexer grammar PredicateFreeMarkdownLexer;
+
+options { tokenVocab=MarkdownLexer; }
+
+@header {
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+}
+
+@members {
+@Override
+public void recover(LexerNoViableAltException e) {
+  super.recover(e);
+  final int last = _input.LA(-1);
+  switch (_mode) {
+    case DEFAULT_MODE:
+    case AFTER_BACKSLASH:
+      mode(last == '\\' ? AFTER_BACKSLASH : DEFAULT_MODE);
+      break;
+    case FENCED:
+    case FENCED_LINE:
+      mode(last == '\n' || last == '\r' ? FENCED_LINE : FENCED);
+      break;
+    default:
+      break;
+  }
+}
+}
+
+/* default mode; preceding character is not a backslash */
+
+LITERAL
+:
+	LITERALBODY
+;
+
+HEADINGLINE
+:
+	'#'+ ' '? LINECHAR* UNESCAPINGCHAR
+;
+
+HEADINGLINE_BS
+:
+	'#'+ ' '? LINECHAR* '\\' -> type(HEADINGLINE), mode(AFTER_BACKSLASH)
+;
+
+QUOTELINE
+:
+	'>' ' '? LINEITEM+
+;
+
+QUOTELINE_BS
+:
+	'>' ' '? LINEITEM* '\\'+ -> type(QUOTELINE), mode(AFTER_BACKSLASH)
+;
+
+LISTLINE
+:
+	LISTPREFIX (LINECHAR* UNESCAPINGCHAR)?
+;
+
+LISTLINE_BS
+:
+	LISTPREFIX LINECHAR* '\\' -> type(LISTLINE), mode(AFTER_BACKSLASH)
+;
+
+PARAGRAPHLINE
+:
+	PARAGRAPHSTART LINEITEM*
+;
+
+PARAGRAPHLINE_BS
+:
+	(PARAGRAPHSTART LINEITEM*)? '\\'+ -> type(PARAGRAPHLINE), mode(AFTER_BACKSLASH)
+;
+
+TABLEDELIMINATORCELL
+:
+	'|'? DELIMITER
+;
+
+OPEN_FENCE
+:
+	'```' -> mode(FENCED)
+;
+
+IGNORE_WS
+:
+	WS -> skip
+;
+
+NEWLINE
+:
+	'\r'? '\n'
+;
+
+CELLTEXT
+:
+	'|' WS CELLITEM*
+;
+
+CELLTEXT_BS
+:
+	'|' WS CELLITEM* ESCAPEDBACKSLASH+ -> type(CELLTEXT), mode(AFTER_BACKSLASH)
+;
+
+BACKTICK
+:
+	'`'
+;
+
+GT
+:
+	'>'
+;
+
+HASH
+:
+	'#'
+;
+
+PIPE
+:
+	'|'
+;
+
+/* Literal whose closing backtick is not preceded by backslash */
+fragment
+LITERALBODY
+:
+	'`' LITERALCHAR* ~[`\\] '`'
+;
+
+/* Line content; a literal may not follow a backslash */
+fragment
+LINEITEM
+:
+	UNESCAPINGCHAR
+	| LITERALBODY
+	| '\\'+ UNESCAPINGCHAR
+;
+
+fragment
+PARAGRAPHSTART
+:
+	~[#>|\n\r\\]
+	| '\\'+ UNESCAPINGCHAR
+;
+
+fragment
+LISTPREFIX
+:
+	WS*
+	(
+		BULLET
+		| LISTNUMBER
+	) WS+
+;
+
+fragment
+DELIMITER
+:
+	' '? ':'? '-'+ ':'? ' '?
+;
+
+/* Cell content; after an escaped backslash, a pipe is escaped but a literal may not follow */
+fragment
+CELLITEM
+:
+	CELLCHAR
+	| LITERALBODY
+	| ESCAPEDBACKSLASH+
+	(
+		CELLCHAR
+		| '|'
+	)
+;
+
+/* disallow unescaped pipe, newline, literal within a table cell */
+fragment
+CELLCHAR
+:
+	(
+		ESCAPEDCHAR
+		| WS
+		| ALPHANUMERIC
+		| PUNCTUATION
+	)
+;
+
+/* Escaped punctuation, except backslash */
+fragment
+ESCAPEDCHAR
+:
+	'\\' [!"#$%&'()*+,\-./:;<=>?@[\]^_{|}~`]
+;
+
+fragment
+ESCAPEDBACKSLASH
+:
+	'\\\\'
+;
+
+fragment
+ALPHANUMERIC
+:
+	[a-zA-Z0-9\u0080-\uFFFF]
+;
+
+fragment
+PUNCTUATION
+:
+	[!"#$%&'()*+,\-./:;<=>?@[\]^_{}]
+;
+
+fragment
+WS
+:
+	[ \t]
+;
+
+fragment
+LISTNUMBER
+:
+	[1-9] [.)]
+;
+
+fragment
+BULLET
+:
+	[-+*]
+;
+
+fragment
+LITERALCHAR
+:
+	~[`]
+;
+
+fragment
+LINECHAR
+:
+	~[\n\r`]
+;
+
+fragment
+UNESCAPINGCHAR
+:
+	~[\n\r`\\]
+;
+
+/* preceding character is a backslash, so backtick, greater-than, hash and pipe are escaped */
+mode AFTER_BACKSLASH;
+
+AB_LISTLINE
+:
+	LISTPREFIX (LINECHAR* UNESCAPINGCHAR)? -> type(LISTLINE), mode(DEFAULT_MODE)
+;
+
+AB_LISTLINE_BS
+:
+	LISTPREFIX LINECHAR* '\\' -> type(LISTLINE)
+;
+
+AB_PARAGRAPHLINE
+:
+	PARAGRAPHSTART LINEITEM* -> type(PARAGRAPHLINE), mode(DEFAULT_MODE)
+;
+
+AB_PARAGRAPHLINE_BS
+:
+	(PARAGRAPHSTART LINEITEM*)? '\\'+ -> type(PARAGRAPHLINE)
+;
+
+AB_TABLEDELIMINATORCELL
+:
+	DELIMITER -> type(TABLEDELIMINATORCELL), mode(DEFAULT_MODE)
+;
+
+AB_OPEN_FENCE
+:
+	'```' -> type(OPEN_FENCE), mode(FENCED)
+;
+
+AB_IGNORE_WS
+:
+	WS -> skip, mode(DEFAULT_MODE)
+;
+
+AB_NEWLINE
+:
+	'\r'? '\n' -> type(NEWLINE), mode(DEFAULT_MODE)
+;
+
+/* within a fenced code block, not at the start of a line */
+mode FENCED;
+
+CLOSE_FENCE
+:
+	'```' (FENCEDNEWLINE | EOF) -> mode(DEFAULT_MODE)
+;
+
+LINENUMBER
+:
+	DIGIT+
+;
+
+IMPORT
+:
+	'import'
+;
+
+FROM
+:
+	'from'
+;
+
+TO
+:
+	'to' | '-'
+;
+
+STRING
+:
+	'"' LINECHAR*? '"'
+;
+
+WORD
+:
+	WORDCHAR+
+;
+
+FENCED_NEWLINE
+:
+	FENCEDNEWLINE -> mode(FENCED_LINE)
+;
+
+FENCED_IGNORE_WS
+:
+	WS -> skip
+;
+
+fragment
+FENCEDNEWLINE
+:
+	'\r'? '\n'
+;
+
+fragment
+DIGIT
+:
+	[0-9]
+;
+
+fragment
+WORDCHAR
+:
+	~[\n\r\t |`]
+;
+
+fragment
+TEXTCHAR
+:
+	~[\n\r]
+;
+
+/* within a fenced code block at the start of a line */
+mode FENCED_LINE;
+
+FL_CLOSE_FENCE
+:
+	'```' (FENCEDNEWLINE | EOF) -> type(CLOSE_FENCE), mode(DEFAULT_MODE)
+;
+
+TEXTLINE
+:
+	TEXTCHAR+ FENCEDNEWLINE
+;
+
+INITIALTEXTCHAR
+:
+	TEXTCHAR -> mode(FENCED)
+;
+
+FL_LINENUMBER
+:
+	DIGIT+ -> type(LINENUMBER), mode(FENCED)
+;
+
+FL_IMPORT
+:
+	'import' -> type(IMPORT), mode(FENCED)
+;
+
+FL_FROM
+:
+	'from' -> type(FROM), mode(FENCED)
+;
+
+FL_TO
+:
+	('to' | '-') -> type(TO), mode(FENCED)
+;
+
+FL_STRING
+:
+	'"' LINECHAR*? '"' -> type(STRING), mode(FENCED)
+;
+
+FL_WORD
+:
+	WORDCHAR+ -> type(WORD), mode(FENCED)
+;
+
+FL_FENCED_NEWLINE
+:
+	FENCEDNEWLINE -> type(FENCED_NEWLINE)
+;
+
+FL_FENCED_IGNORE_WS
+:
+	WS -> skip, mode(FENCED)
+;
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A CharStream that decodes UTF-8 text from a ByteBuffer as it is read
+ *
+ * Unlike {@link org.antlr.v4.runtime.CharStreams#fromStream(java.io.InputStream)}, text is not
+ * copied to an array of code points, so a memory-mapped file may be lexed without occupying heap
+ * in proportion to its size. Indexes are code points, as in other CharStreams.
+ *
+ * The buffer is scanned once when the stream is created to count code points. If it contains only
+ * ASCII, an index is a byte offset. Otherwise, the byte offset of every
+ * {@value #CHECKPOINT_INTERVAL}th code point is recorded as the stream is read, so that seeking
+ * backward does not decode from the start.
+ *
+ * {@link #getText(Interval)} does not change the state of the stream, so text of tokens may be
+ * read by another thread after lexing is complete.
+ *
+ * A malformed sequence decodes to U+FFFD. A code point starts at every byte that is not a
+ * continuation byte, so a stray continuation byte belongs to the preceding code point.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ByteBufferCharStream implements CharStream {
+
+  static final int CHECKPOINT_INTERVAL = 1024;
+
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final int REPLACEMENT = 0xFFFD;
+
+  private static boolean isContinuation(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+
+  private final boolean ascii;
+  private final ByteBuffer buffer;
+  private final int byteLength;
+  private int byteOffset = 0;
+  // byte offsets of code points at multiples of CHECKPOINT_INTERVAL, recorded in order
+  private int[] checkpoints = new int[16];
+  private int checkpointCount = 1;
+  // most recent position looked up other than the current one, typically lookahead
+  private int hintIndex = 0;
+  private int hintOffset = 0;
+  private int index = 0;
+  private final int size;
+  private final String sourceName;
+
+  /**
+   * Constructor
+   *
+   * @param buffer text encoded as UTF-8, from its position to its limit. The buffer is not
+   *        modified, but its content must not change while the stream is in use.
+   * @param sourceName name of the source, such as a file path. May be {@code null}.
+   */
+  public ByteBufferCharStream(ByteBuffer buffer, String sourceName) {
+    this.buffer = buffer.slice();
+    this.byteLength = this.buffer.limit();
+    this.sourceName = sourceName;
+
+    boolean nonAscii = false;
+    int continuations = 0;
+    for (int i = 0; i < byteLength; i++) {
+      if (i + Long.BYTES <= byteLength && (this.buffer.getLong(i) & HIGH_BITS) == 0) {
+        i += Long.BYTES - 1;
+      } else {
+        final byte b = this.buffer.get(i);
+        if (b < 0) {
+          nonAscii = true;
+          if (isContinuation(b)) {
+            continuations++;
+          }
+        }
+      }
+    }
+    // a leading continuation byte has no preceding code point to belong to
+    if (byteLength > 0 && isContinuation(this.buffer.get(0))) {
+      continuations--;
+    }
+    this.ascii = !nonAscii;
+    this.size = byteLength - continuations;
+  }
+
+  @Override
+  public void consume() {
+    if (index >= size) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    byteOffset = next(byteOffset);
+    index++;
+    record(index, byteOffset);
+  }
+
+  @Override
+  public String getSourceName() {
+    return sourceName != null && !sourceName.isEmpty() ? sourceName : UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    final int start = Math.min(interval.a, size);
+    final int length = Math.min(interval.b - interval.a + 1, size - start);
+    if (length <= 0) {
+      return "";
+    }
+    if (ascii) {
+      final byte[] bytes = new byte[length];
+      buffer.duplicate().position(start).get(bytes);
+      return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+    final StringBuilder sb = new StringBuilder(length);
+    int offset = offsetOf(start, false);
+    for (int i = 0; i < length; i++) {
+      sb.appendCodePoint(decode(offset));
+      offset = next(offset);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public int index() {
+    return index;
+  }
+
+  /**
+   * @return {@code true} if the text contains only ASCII characters
+   */
+  public boolean isAscii() {
+    return ascii;
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0;
+    }
+    if (i < 0) {
+      // e.g., translate LA(-1) to use offset i=0; then data[p+0-1]
+      i++;
+    }
+    final int position = index + i - 1;
+    if (position < 0 || position >= size) {
+      return IntStream.EOF;
+    }
+    if (i == 1) {
+      return decode(byteOffset);
+    }
+    final int offset = offsetOf(position, true);
+    hint(position, offset);
+    return decode(offset);
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+    // whole buffer is always available
+  }
+
+  @Override
+  public void seek(int index) {
+    final int target = Math.max(0, Math.min(index, size));
+    byteOffset = offsetOf(target, true);
+    this.index = target;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return getText(Interval.of(0, size - 1));
+  }
+
+  private int decode(int offset) {
+    final int b = buffer.get(offset) & 0xFF;
+    if (b < 0x80) {
+      return b;
+    }
+    final int expected;
+    int cp;
+    if (b < 0xC0 || b >= 0xF8) {
+      return REPLACEMENT;
+    } else if (b >= 0xF0) {
+      expected = 4;
+      cp = b & 0x07;
+    } else if (b >= 0xE0) {
+      expected = 3;
+      cp = b & 0x0F;
+    } else {
+      expected = 2;
+      cp = b & 0x1F;
+    }
+    int length = 1;
+    while (offset + length < byteLength && isContinuation(buffer.get(offset + length))) {
+      if (length < expected) {
+        cp = (cp << 6) | (buffer.get(offset + length) & 0x3F);
+      }
+      length++;
+    }
+    if (length != expected || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)
+        || cp < (expected == 2 ? 0x80 : expected == 3 ? 0x800 : 0x10000)) {
+      return REPLACEMENT;
+    }
+    return cp;
+  }
+
+  private void hint(int index, int offset) {
+    hintIndex = index;
+    hintOffset = offset;
+  }
+
+  private int next(int offset) {
+    if (ascii) {
+      return offset + 1;
+    }
+    int o = offset + 1;
+    while (o < byteLength && isContinuation(buffer.get(o))) {
+      o++;
+    }
+    return o;
+  }
+
+  /**
+   * Finds the byte offset of a code point by walking from the nearest known position
+   *
+   * @param record whether to record checkpoints that are passed. If {@code false}, the state of
+   *        this stream is not changed.
+   */
+  private int offsetOf(int target, boolean record) {
+    if (ascii) {
+      return target;
+    }
+    final int checkpoint = Math.min(target / CHECKPOINT_INTERVAL, checkpointCount - 1);
+    int fromIndex = checkpoint * CHECKPOINT_INTERVAL;
+    int fromOffset = checkpoints[checkpoint];
+    if (Math.abs(target - index) < target - fromIndex) {
+      fromIndex = index;
+      fromOffset = byteOffset;
+    }
+    if (Math.abs(target - hintIndex) < Math.abs(target - fromIndex)) {
+      fromIndex = hintIndex;
+      fromOffset = hintOffset;
+    }
+    int o = fromOffset;
+    for (int i = fromIndex; i < target; i++) {
+      o = next(o);
+      if (record) {
+        record(i + 1, o);
+      }
+    }
+    for (int i = fromIndex; i > target; i--) {
+      o = previous(o);
+    }
+    return o;
+  }
+
+  private int previous(int offset) {
+    int o = offset - 1;
+    while (o > 0 && isContinuation(buffer.get(o))) {
+      o--;
+    }
+    return o;
+  }
+
+  private void record(int index, int offset) {
+    if (!ascii && index % CHECKPOINT_INTERVAL == 0
+        && index / CHECKPOINT_INTERVAL == checkpointCount) {
+      if (checkpointCount == checkpoints.length) {
+        final int[] expanded = new int[checkpointCount * 2];
+        System.arraycopy(checkpoints, 0, expanded, 0, checkpointCount);
+        checkpoints = expanded;
+      }
+      checkpoints[checkpointCount++] = offset;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits heading lines into level and keys in a single pass
+ *
+ * A key is a word delimited by whitespace, or text enclosed by double quotes, which may contain
+ * whitespace. An unmatched quote is part of a word. Recently seen heading lines are cached, since
+ * generated documents repeat many headings.
+ *
+ * A HeadingTokenizer is not safe for use by multiple threads.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class HeadingTokenizer {
+
+  /**
+   * Level and keys of a heading. Keys are shared by repeated headings and must not be modified.
+   */
+  static final class Heading {
+    final String[] keys;
+    final int level;
+
+    Heading(String[] keys, int level) {
+      this.keys = keys;
+      this.level = level;
+    }
+  }
+
+  static final int CACHE_SIZE = 256;
+
+  /**
+   * Splits heading text into keys
+   *
+   * @param text heading line
+   * @param from position of the first character after the heading marker
+   * @return keys of the heading
+   */
+  static String[] split(String text, int from) {
+    return split(text, from, new String[8]);
+  }
+
+  private static boolean isWhitespace(char c) {
+    // same as regular expression \s
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+  }
+
+  private static String[] split(String text, int from, String[] buffer) {
+    String[] tokens = buffer;
+    int count = 0;
+    final int length = text.length();
+    int i = from;
+    while (i < length) {
+      final char c = text.charAt(i);
+      if (isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      final String token;
+      final int close = c == '"' ? text.indexOf('"', i + 1) : -1;
+      if (close != -1) {
+        token = text.substring(i + 1, close);
+        i = close + 1;
+      } else {
+        final int start = i;
+        while (i < length && !isWhitespace(text.charAt(i))) {
+          i++;
+        }
+        token = text.substring(start, i);
+      }
+      if (count == tokens.length) {
+        tokens = Arrays.copyOf(tokens, count * 2);
+      }
+      tokens[count++] = token;
+    }
+    return Arrays.copyOf(tokens, count);
+  }
+
+  private String[] buffer = new String[8];
+
+  private final Map<String, Heading> cache = new LinkedHashMap<>(CACHE_SIZE * 2, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Heading> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Tokenizes a heading line
+   *
+   * @param headingLine text of a heading, starting with its level marker, such as {@code ##}
+   * @return level and keys of the heading
+   */
+  Heading tokenize(String headingLine) {
+    Heading heading = cache.get(headingLine);
+    if (heading == null) {
+      // Heading level is length of first word formed with '#'
+      final int level = headingLine.indexOf(' ');
+      final String[] keys = split(headingLine, level + 1, buffer);
+      if (keys.length > buffer.length) {
+        buffer = new String[keys.length];
+      }
+      heading = new Heading(keys, level);
+      cache.put(headingLine, heading);
+    }
+    return heading;
+  }
+}
@@ -19,17 +19,25 @@ import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -55,9 +63,15 @@ import io.fixprotocol.md.antlr.MarkdownParser.TabledelimiterrowContext;
 import io.fixprotocol.md.antlr.MarkdownParser.TableheadingContext;
 import io.fixprotocol.md.antlr.MarkdownParser.TablerowContext;
 import io.fixprotocol.md.antlr.MarkdownParser.TextlineContext;
+import io.fixprotocol.md.event.ColumnKeys;
+import io.fixprotocol.md.event.Context;
 import io.fixprotocol.md.event.ContextFactory;
+import io.fixprotocol.md.event.Detail;
+import io.fixprotocol.md.event.DetailTable;
 import io.fixprotocol.md.event.Documentation;
+import io.fixprotocol.md.event.EventFilter;
 import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.md.event.JoinedText;
 import io.fixprotocol.md.event.MutableContext;
 import io.fixprotocol.md.event.MutableDetail;
 import io.fixprotocol.md.event.MutableDetailProperties;
@@ -65,8 +79,8 @@ import io.fixprotocol.md.event.MutableDetailTable;
 import io.fixprotocol.md.event.MutableDocumentContext;
 import io.fixprotocol.md.event.MutableDocumentation;
 import io.fixprotocol.md.event.MutableGraphContext;
-import io.fixprotocol.md.util.FileImport;
-import io.fixprotocol.md.util.FileImport.Imported;
+import io.fixprotocol.md.util.ImportCache;
+import io.fixprotocol.md.util.ImportSession;
 import io.fixprotocol.md.util.FileSpec;
 
 /**
@@ -75,43 +89,84 @@ import io.fixprotocol.md.util.FileSpec;
  * @author Don Mendelson
  *
  */
-public class MarkdownEventSource implements MarkdownParserListener {
+public class MarkdownEventSource implements MarkdownParserListener, AutoCloseable {
 
-  private static final String CELL_NONTEXT = " |\t";
-  // Support tokens with internal spaces surrounded by double quote. Otherwise split by whitespace.
-  private static final Pattern HEADING_TOKEN_REGEX = Pattern.compile("\"([^\"]*)\"|(\\S+)");
-  
+  /**
+   * An import that is run by an executor, or by the thread that needs it if it has not started
+   */
+  private final class PrefetchedImport implements Runnable {
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+    private final FileSpec spec;
 
-  public static String[] tokenizeHeading(final String headingLine, final int headingLevel) {
-    final List<String> matchList = new ArrayList<String>();
-    final Matcher matcher = HEADING_TOKEN_REGEX.matcher(headingLine.substring(headingLevel + 1));
-    while (matcher.find()) {
-      if (matcher.group(1) != null) {
-        // Add double-quoted string without the quotes
-        matchList.add(matcher.group(1));
-      } else if (matcher.group(2) != null) {
-        // Add single-quoted string without the quotes
-        matchList.add(matcher.group(2));
-      } else {
-        // Add unquoted word
-        matchList.add(matcher.group());
+    PrefetchedImport(FileSpec spec) {
+      this.spec = spec;
+    }
+
+    @Override
+    public void run() {
+      if (claimed.compareAndSet(false, true)) {
+        try {
+          future.complete(importFile(spec));
+        } catch (final IOException | RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      }
+    }
+
+    void cancel() {
+      claimed.set(true);
+    }
+
+    String get() throws IOException {
+      if (claimed.compareAndSet(false, true)) {
+        return importFile(spec);
+      }
+      try {
+        return future.join();
+      } catch (final CompletionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw e;
       }
     }
-    final String[] array = new String[matchList.size()];
-    return matchList.toArray(array);
   }
 
-  static String normalizeList(List<? extends ListlineContext> textlines) {
-    return textlines.stream().map(p -> p.LISTLINE().getText()).collect(Collectors.joining("\n"));
+  private static final String CELL_NONTEXT = " |\t";
+
+  // Support tokens with internal spaces surrounded by double quote. Otherwise split by whitespace.
+  public static String[] tokenizeHeading(final String headingLine, final int headingLevel) {
+    return HeadingTokenizer.split(headingLine, headingLevel + 1);
   }
 
-  static String normalizeParagraph(List<? extends ParagraphlineContext> textlines) {
-    return textlines.stream().map(p -> p.PARAGRAPHLINE().getText())
-        .collect(Collectors.joining(" "));
+  static CharSequence normalizeList(List<? extends ListlineContext> textlines) {
+    return joinLines(textlines.stream().map(ListlineContext::LISTLINE), "\n");
   }
 
-  static String normalizeQuote(List<? extends QuotelineContext> textlines) {
-    return textlines.stream().map(p -> p.QUOTELINE().getText()).collect(Collectors.joining("\n"));
+  static CharSequence normalizeParagraph(List<? extends ParagraphlineContext> textlines) {
+    return joinLines(textlines.stream().map(ParagraphlineContext::PARAGRAPHLINE), " ");
+  }
+
+  static CharSequence normalizeQuote(List<? extends QuotelineContext> textlines) {
+    return joinLines(textlines.stream().map(QuotelineContext::QUOTELINE), "\n");
+  }
+
+  /**
+   * Joins the text of line tokens lazily, so it is not copied from the input unless needed
+   *
+   * Text of a memory-mapped file is copied before delivery since the file may be truncated or
+   * rewritten after a parse.
+   */
+  private static CharSequence joinLines(Stream<TerminalNode> lines, String delimiter) {
+    final List<Token> tokens = lines.map(TerminalNode::getSymbol).collect(Collectors.toList());
+    final List<CharSequence> parts =
+        tokens.stream().map(TokenText::new).collect(Collectors.toList());
+    final CharSequence text = parts.size() == 1 ? parts.get(0) : new JoinedText(parts, delimiter);
+    if (!tokens.isEmpty() && tokens.get(0).getInputStream() instanceof ByteBufferCharStream) {
+      return text.toString();
+    }
+    return text;
   }
 
   static String trimCell(String text) {
@@ -124,19 +179,36 @@ public class MarkdownEventSource implements MarkdownParserListener {
     return text.substring(beginIndex, endIndex);
   }
 
+  private static final int CONTEXT = 0;
+  private static final int DETAIL = 3;
+  private static final int DETAIL_TABLE = 2;
+  private static final int DOCUMENTATION = 1;
+  private static final List<Class<? extends GraphContext>> EVENT_TYPES =
+      List.of(Context.class, Documentation.class, DetailTable.class, Detail.class);
+
   private final Path baseDir;
 
   private final Consumer<? super GraphContext> contextConsumer;
 
-  private final ContextFactory contextFactory = new ContextFactory();
+  private final ContextFactory contextFactory;
   private final Deque<MutableContext> contexts = new ArrayDeque<>();
-  private final FileImport fileImport = new FileImport();
+  // filter decisions for the current heading, indexed by event type
+  private final boolean[] wanted = new boolean[EVENT_TYPES.size()];
+  private Context wantedHeading;
+  private boolean isWantedKnown = false;
+  private final EventFilter eventFilter;
+  private final HeadingTokenizer headingTokenizer = new HeadingTokenizer();
+  private final ImportCache importCache;
+  private final ImportSession importSession = new ImportSession();
   private boolean inTableHeading = false;
-  private final List<String> lastBlocks = new ArrayList<>();
+  private final List<CharSequence> lastBlocks = new ArrayList<>();
+  private ColumnKeys lastColumnKeys = new ColumnKeys();
   private int lastColumnNo;
   private final List<String> lastRowValues = new ArrayList<>();
+  private MutableDetailTable lastTable;
   private final List<String> lastTableHeadings = new ArrayList<>();
   private final Logger logger = LogManager.getLogger(getClass());
+  private final Map<ImportspecContext, PrefetchedImport> prefetched = new IdentityHashMap<>();
 
   /**
    * Constructor
@@ -156,8 +228,100 @@ public class MarkdownEventSource implements MarkdownParserListener {
    * @param baseDir base directory for file imports (if any)
    */
   public MarkdownEventSource(Consumer<? super GraphContext> contextConsumer, Path baseDir) {
+    this(contextConsumer, baseDir, EventFilter.ALL);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer target of events
+   * @param baseDir base directory for file imports (if any)
+   * @param eventFilter selects events to build and deliver
+   */
+  public MarkdownEventSource(Consumer<? super GraphContext> contextConsumer, Path baseDir,
+      EventFilter eventFilter) {
+    this(contextConsumer, baseDir, eventFilter, new ContextFactory());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer target of events
+   * @param baseDir base directory for file imports (if any)
+   * @param eventFilter selects events to build and deliver
+   * @param contextFactory creates events
+   */
+  public MarkdownEventSource(Consumer<? super GraphContext> contextConsumer, Path baseDir,
+      EventFilter eventFilter, ContextFactory contextFactory) {
+    this(contextConsumer, baseDir, eventFilter, contextFactory, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param contextConsumer target of events
+   * @param baseDir base directory for file imports (if any)
+   * @param eventFilter selects events to build and deliver
+   * @param contextFactory creates events
+   * @param importCache cache of imported text, which may be shared. May be {@code null} to read
+   *        every import from its file.
+   */
+  public MarkdownEventSource(Consumer<? super GraphContext> contextConsumer, Path baseDir,
+      EventFilter eventFilter, ContextFactory contextFactory, ImportCache importCache) {
     this.contextConsumer = contextConsumer;
+    this.contextFactory = Objects.requireNonNull(contextFactory, "Missing contextFactory");
     this.baseDir = Objects.requireNonNullElse(baseDir, Paths.get("").toAbsolutePath());
+    this.eventFilter = Objects.requireNonNull(eventFilter, "Missing eventFilter");
+    this.importCache = importCache;
+  }
+
+  /**
+   * Releases files imported by this listener
+   *
+   * Prefetched imports that have not been reached are cancelled. Files imported later fail.
+   */
+  @Override
+  public void close() {
+    prefetched.values().forEach(PrefetchedImport::cancel);
+    prefetched.clear();
+    importSession.close();
+  }
+
+  /**
+   * Starts to import files specified by fenced code blocks of a parse tree
+   *
+   * Files are read and decoded concurrently by an executor. When this listener reaches a fenced
+   * code block, it waits for its import to complete, so events are delivered in document order as
+   * without prefetch. An import that the executor has not started is run by the walking thread
+   * instead, so the walk may run on a thread of the same executor without waiting for a task that
+   * is queued behind it. All imports of the tree are read, including any whose documentation is not
+   * accepted by the event filter.
+   *
+   * @param tree a parse tree to be walked by this listener
+   * @param executor runs imports
+   */
+  public void prefetchImports(ParseTree tree, Executor executor) {
+    Objects.requireNonNull(executor, "Missing executor");
+    ParseTreeWalker.DEFAULT.walk(new MarkdownParserBaseListener() {
+      @Override
+      public void exitFencedcodeblock(FencedcodeblockContext ctx) {
+        final ImportspecContext importspecCtx = ctx.importspec();
+        final InfostringContext infostringCtx = ctx.infostring();
+        if (importspecCtx != null && infostringCtx != null) {
+          final FileSpec spec =
+              MarkdownImportEvent.infostringToFileSpec(infostringCtx, importspecCtx);
+          if (spec != null && spec.isValid() && spec.getPath() != null) {
+            final PrefetchedImport prefetch = new PrefetchedImport(spec);
+            prefetched.put(importspecCtx, prefetch);
+            try {
+              executor.execute(prefetch);
+            } catch (final RejectedExecutionException e) {
+              // imported when reached
+            }
+          }
+        }
+      }
+    }, tree);
   }
 
   @Override
@@ -271,6 +435,7 @@ public class MarkdownEventSource implements MarkdownParserListener {
   public void enterTable(TableContext ctx) {
     supplyLastDocumentation();
     lastBlocks.clear();
+    lastTable = null;
   }
 
   @Override
@@ -306,16 +471,17 @@ public class MarkdownEventSource implements MarkdownParserListener {
   @Override
   public void exitBlockquote(BlockquoteContext ctx) {
     final List<QuotelineContext> textlines = ctx.quoteline();
-    lastBlocks.add(normalizeQuote(textlines));
+    if (isWanted(DOCUMENTATION)) {
+      lastBlocks.add(normalizeQuote(textlines));
+    }
   }
 
   @Override
   public void exitCell(CellContext ctx) {
-    final String cellText = trimCell(ctx.CELLTEXT().getText());
     if (inTableHeading) {
-      lastTableHeadings.add(cellText);
-    } else {
-      lastRowValues.add(cellText);
+      lastTableHeadings.add(trimCell(ctx.CELLTEXT().getText()));
+    } else if (isWanted(DETAIL) || isWanted(DETAIL_TABLE)) {
+      lastRowValues.add(ctx.CELLTEXT().getText());
     }
     lastColumnNo++;
   }
@@ -345,6 +511,9 @@ public class MarkdownEventSource implements MarkdownParserListener {
    */
   @Override
   public void exitFencedcodeblock(FencedcodeblockContext ctx) {
+    if (!isWanted(DOCUMENTATION)) {
+      return;
+    }
     String format = Documentation.MARKDOWN;
     final InfostringContext infostringCtx = ctx.infostring();
     final ImportspecContext importspecCtx = ctx.importspec();
@@ -359,8 +528,7 @@ public class MarkdownEventSource implements MarkdownParserListener {
           final String path = spec.getPath();
           if (path != null) {
             try {
-              final Imported imported = fileImport.importFromFile(baseDir, spec);
-              text = FileImport.bufferToText(imported.getBuffer());
+              text = importText(importspecCtx, spec);
             } catch (final IOException e) {
               logger.error(
                   "Failed to import file specified by infostring for fenced code block is invalid at line {} position {}",
@@ -390,19 +558,19 @@ public class MarkdownEventSource implements MarkdownParserListener {
 
   @Override
   public void exitHeading(HeadingContext ctx) {
-    final String headingLine = ctx.HEADINGLINE().getText();
     // Only a new heading changes the context
-    // Heading level is length of first word formed with '#'
-    final int headingLevel = headingLine.indexOf(" ");
-    final String[] headingWords = tokenizeHeading(headingLine, headingLevel);
-    final MutableContext context = contextFactory.createContext(headingWords, headingLevel);
+    final HeadingTokenizer.Heading heading =
+        headingTokenizer.tokenize(ctx.HEADINGLINE().getText());
+    final MutableContext context = contextFactory.createContext(heading.keys, heading.level);
     context.setLine(ctx.start.getLine());
     context.setCharPositionInLine(ctx.start.getCharPositionInLine());
     context.setStartOffset(ctx.start.getStartIndex());
     context.setEndOffset(ctx.stop.getStopIndex());
     updateGraphContext(context);
 
-    contextConsumer.accept(context);
+    if (isWanted(CONTEXT)) {
+      contextConsumer.accept(context);
+    }
   }
 
   @Override
@@ -420,7 +588,9 @@ public class MarkdownEventSource implements MarkdownParserListener {
   @Override
   public void exitList(ListContext ctx) {
     final List<ListlineContext> textlines = ctx.listline();
-    lastBlocks.add(normalizeList(textlines));
+    if (isWanted(DOCUMENTATION)) {
+      lastBlocks.add(normalizeList(textlines));
+    }
   }
 
   @Override
@@ -438,7 +608,9 @@ public class MarkdownEventSource implements MarkdownParserListener {
   @Override
   public void exitParagraph(ParagraphContext ctx) {
     final List<ParagraphlineContext> textlines = ctx.paragraphline();
-    lastBlocks.add(normalizeParagraph(textlines));
+    if (isWanted(DOCUMENTATION)) {
+      lastBlocks.add(normalizeParagraph(textlines));
+    }
   }
 
   @Override
@@ -467,31 +639,15 @@ public class MarkdownEventSource implements MarkdownParserListener {
 
   @Override
   public void exitTable(TableContext ctx) {
-    if (!inTableHeading) {
-      final MutableDetailTable detailTable = contextFactory.createDetailTable();
-      detailTable.setLine(ctx.start.getLine());
-      detailTable.setCharPositionInLine(ctx.start.getCharPositionInLine());
-      final List<TablerowContext> tablerows = ctx.tablerow();
-
-      for (final TablerowContext tablerow : tablerows) {
-        final MutableDetailProperties row = detailTable.newRow();
+    if (!inTableHeading && isWanted(DETAIL_TABLE)) {
+      final MutableDetailTable detailTable =
+          lastTable != null ? lastTable : newDetailTable(ctx);
+      for (final DetailTable.TableRow row : detailTable.rows()) {
         if (row instanceof MutableDocumentContext) {
-          final MutableDocumentContext mutableRow = (MutableDocumentContext) row;
-          mutableRow.setLine(tablerow.start.getLine());
-          mutableRow.setCharPositionInLine(tablerow.start.getCharPositionInLine());
-          mutableRow.setStartOffset(ctx.start.getStartIndex());
-          mutableRow.setEndOffset(ctx.stop.getStopIndex());
-        }
-
-        for (int i = 0; i < tablerow.cell().size() && i < lastTableHeadings.size(); i++) {
-          final CellContext cell = tablerow.cell(i);
-          if (cell != null) {
-            row.addProperty(lastTableHeadings.get(i), cell.getText());
-          } else {
-            logger.error("MarkdownEventSource table cell missing in column {}", i);
-          }
+          ((MutableDocumentContext) row).setEndOffset(ctx.stop.getStopIndex());
         }
       }
+      lastTable = null;
       updateParentGraphContext(detailTable);
       if (contextConsumer != null) {
         contextConsumer.accept(detailTable);
@@ -508,22 +664,51 @@ public class MarkdownEventSource implements MarkdownParserListener {
   @Override
   public void exitTableheading(TableheadingContext ctx) {
     inTableHeading = false;
+    // rows of the table share keys; headings are replaced by interned keys for identity matches
+    lastColumnKeys = new ColumnKeys(lastTableHeadings);
+    lastTableHeadings.replaceAll(h -> lastColumnKeys.get(lastColumnKeys.ordinal(h)));
   }
 
   @Override
   public void exitTablerow(TablerowContext ctx) {
-    if (!inTableHeading) {
-      final MutableDetail detail = contextFactory.createDetail();
+    if (inTableHeading || !(isWanted(DETAIL) || isWanted(DETAIL_TABLE))) {
+      return;
+    }
+    MutableDetail detail = null;
+    if (isWanted(DETAIL)) {
+      detail = contextFactory.createDetail(lastColumnKeys);
       detail.setLine(ctx.start.getLine());
       detail.setCharPositionInLine(ctx.start.getCharPositionInLine());
       detail.setStartOffset(ctx.start.getStartIndex());
       detail.setEndOffset(ctx.stop.getStopIndex());
-      for (int i = 0; i < lastColumnNo && i < lastTableHeadings.size(); i++) {
-        final String value = lastRowValues.get(i);
-        if (!value.isBlank()) {
-          detail.addProperty(lastTableHeadings.get(i), value);
-        }
+    }
+    // table rows are built as rows are parsed rather than by walking the table again
+    MutableDetailProperties row = null;
+    if (isWanted(DETAIL_TABLE)) {
+      final TableContext table = (TableContext) ctx.getParent();
+      if (lastTable == null) {
+        lastTable = newDetailTable(table);
+      }
+      row = lastTable.newRow();
+      if (row instanceof MutableDocumentContext) {
+        final MutableDocumentContext mutableRow = (MutableDocumentContext) row;
+        mutableRow.setLine(ctx.start.getLine());
+        mutableRow.setCharPositionInLine(ctx.start.getCharPositionInLine());
+        mutableRow.setStartOffset(table.start.getStartIndex());
+      }
+    }
+    for (int i = 0; i < lastColumnNo && i < lastTableHeadings.size(); i++) {
+      final String cellText = lastRowValues.get(i);
+      final String value = trimCell(cellText);
+      if (detail != null && !value.isBlank()) {
+        detail.addProperty(lastTableHeadings.get(i), value);
       }
+      if (row != null) {
+        // a table row strips its own cell text, which keeps a trailing escaped pipe
+        row.addProperty(lastTableHeadings.get(i), cellText);
+      }
+    }
+    if (detail != null) {
       updateParentGraphContext(detail);
       if (contextConsumer != null) {
         contextConsumer.accept(detail);
@@ -569,13 +754,56 @@ public class MarkdownEventSource implements MarkdownParserListener {
     contextual.setParent(lastContext);
   }
 
-  private String normalizeBlocks() {
-    return String.join("\n\n", lastBlocks);
+  /**
+   * Tests whether events of a type are wanted under the current heading
+   */
+  private boolean isWanted(int eventType) {
+    if (eventFilter == EventFilter.ALL) {
+      return true;
+    }
+    final MutableContext heading = contexts.peekLast();
+    if (!isWantedKnown || heading != wantedHeading) {
+      isWantedKnown = true;
+      wantedHeading = heading;
+      for (int i = 0; i < wanted.length; i++) {
+        wanted[i] = eventFilter.accepts(EVENT_TYPES.get(i), heading);
+      }
+    }
+    return wanted[eventType];
+  }
+
+  private String importFile(FileSpec spec) throws IOException {
+    if (importCache != null) {
+      return importCache.importText(baseDir, spec);
+    }
+    return importSession.importText(baseDir, spec);
+  }
+
+  private String importText(ImportspecContext importspecCtx, FileSpec spec) throws IOException {
+    final PrefetchedImport prefetch = prefetched.remove(importspecCtx);
+    if (prefetch == null) {
+      return importFile(spec);
+    }
+    return prefetch.get();
+  }
+
+  private MutableDetailTable newDetailTable(TableContext ctx) {
+    final MutableDetailTable detailTable = contextFactory.createDetailTable(lastColumnKeys);
+    detailTable.setLine(ctx.start.getLine());
+    detailTable.setCharPositionInLine(ctx.start.getCharPositionInLine());
+    return detailTable;
+  }
+
+  private CharSequence normalizeBlocks() {
+    if (lastBlocks.size() == 1) {
+      return lastBlocks.get(0);
+    }
+    return new JoinedText(new ArrayList<>(lastBlocks), "\n\n");
   }
 
   private void supplyLastDocumentation() {
     if (!lastBlocks.isEmpty()) {
-      final String paragraphs = normalizeBlocks();
+      final CharSequence paragraphs = normalizeBlocks();
       final MutableDocumentation documentation = contextFactory.createDocumentation(paragraphs);
       updateParentGraphContext(documentation);
       contextConsumer.accept(documentation);
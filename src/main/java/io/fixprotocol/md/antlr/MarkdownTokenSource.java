@@ -0,0 +1,601 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Hand-coded scanner that produces the same tokens as {@link MarkdownLexer}
+ *
+ * Each rule of the lexer grammar is matched by a method that returns the length of its longest
+ * match at the current position. As in a generated lexer, the longest match wins, and ties go to
+ * the rule defined first in the grammar. Semantic predicates of the grammar are evaluated by
+ * inspecting the preceding character directly.
+ *
+ * Lexer errors are reported to error listeners with the same position and message as
+ * {@link MarkdownLexer}. The recognizer passed to listeners is {@code null}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class MarkdownTokenSource implements TokenSource {
+
+  private static final int BACKSLASH = '\\';
+  private static final String ESCAPABLE = "\\!\"#$%&'()*+,-./:;<=>?@[]^_{|}~`";
+  private static final String PUNCTUATION = "!\"#$%&'()*+,-./:;<=>?@[]^_{}";
+
+  private static boolean isAlphanumeric(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+        || (c >= 0x80 && c <= 0xFFFF);
+  }
+
+  private static boolean isLinechar(int c) {
+    return c != '\n' && c != '\r' && c != '`' && c != IntStream.EOF;
+  }
+
+  private static boolean isWordchar(int c) {
+    return c != '\n' && c != '\r' && c != '\t' && c != ' ' && c != '|' && c != '`'
+        && c != IntStream.EOF;
+  }
+
+  private static boolean isWs(int c) {
+    return c == ' ' || c == '\t';
+  }
+
+  private int charPositionInLine = 0;
+  private final List<ANTLRErrorListener> errorListeners = new ArrayList<>();
+  private boolean fenced = false;
+  private boolean hitEOF = false;
+  private CharStream input;
+  private int line = 1;
+  private TokenFactory<?> tokenFactory = CommonTokenFactory.DEFAULT;
+  private Pair<TokenSource, CharStream> tokenFactorySourcePair;
+
+  /**
+   * Constructor
+   *
+   * @param input characters to scan. May be {@code null} if set later by
+   *        {@link #setInputStream(CharStream)}.
+   */
+  public MarkdownTokenSource(CharStream input) {
+    setInputStream(input);
+  }
+
+  public void addErrorListener(ANTLRErrorListener listener) {
+    errorListeners.add(listener);
+  }
+
+  @Override
+  public int getCharPositionInLine() {
+    return charPositionInLine;
+  }
+
+  @Override
+  public CharStream getInputStream() {
+    return input;
+  }
+
+  @Override
+  public int getLine() {
+    return line;
+  }
+
+  @Override
+  public String getSourceName() {
+    return input != null ? input.getSourceName() : IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public TokenFactory<?> getTokenFactory() {
+    return tokenFactory;
+  }
+
+  @Override
+  public Token nextToken() {
+    while (true) {
+      if (hitEOF || input.LA(1) == IntStream.EOF) {
+        hitEOF = true;
+        final int index = input.index();
+        return tokenFactory.create(tokenFactorySourcePair, Token.EOF, null,
+            Token.DEFAULT_CHANNEL, index, index - 1, line, charPositionInLine);
+      }
+      final int marker = input.mark();
+      try {
+        final int startIndex = input.index();
+        final int startLine = line;
+        final int startCharPositionInLine = charPositionInLine;
+        long match = fenced ? matchFenced() : matchDefault();
+        int type = (int) (match >>> 32);
+        final int length = (int) match;
+        if (length == 0) {
+          // like a generated lexer, skip the characters examined before failing plus one
+          consume(reportError(startLine, startCharPositionInLine) + 1);
+          continue;
+        }
+        consume(length);
+        switch (type) {
+          case MarkdownLexer.IGNORE_WS:
+          case MarkdownLexer.FENCED_IGNORE_WS:
+            continue;
+          case MarkdownLexer.OPEN_FENCE:
+            fenced = true;
+            break;
+          case MarkdownLexer.CLOSE_FENCE:
+            fenced = false;
+            break;
+          default:
+            break;
+        }
+        return tokenFactory.create(tokenFactorySourcePair, type, null, Token.DEFAULT_CHANNEL,
+            startIndex, input.index() - 1, startLine, startCharPositionInLine);
+      } finally {
+        input.release(marker);
+      }
+    }
+  }
+
+  public void removeErrorListeners() {
+    errorListeners.clear();
+  }
+
+  /**
+   * Sets new input and resets the state of this scanner
+   *
+   * @param input characters to scan. May be {@code null} to release the previous input.
+   */
+  public void setInputStream(CharStream input) {
+    this.input = input;
+    this.tokenFactorySourcePair = new Pair<>(this, input);
+    this.line = 1;
+    this.charPositionInLine = 0;
+    this.fenced = false;
+    this.hitEOF = false;
+  }
+
+  @Override
+  public void setTokenFactory(TokenFactory<?> factory) {
+    this.tokenFactory = factory;
+  }
+
+  private void consume(int length) {
+    for (int i = 0; i < length; i++) {
+      final int c = input.LA(1);
+      if (c == IntStream.EOF) {
+        break;
+      } else if (c == '\n') {
+        line++;
+        charPositionInLine = 0;
+      } else {
+        charPositionInLine++;
+      }
+      input.consume();
+    }
+  }
+
+  private int la(int i) {
+    return input.LA(i);
+  }
+
+  /**
+   * Character preceding lookahead position i, possibly before the current position
+   */
+  private int lb(int i) {
+    return i > 1 ? la(i - 1) : input.LA(-1);
+  }
+
+  private int literal(int i) {
+    if (la(i) != '`' || lb(i) == BACKSLASH) {
+      return 0;
+    }
+    int j = i + 1;
+    int c;
+    while ((c = la(j)) != '`') {
+      if (c == IntStream.EOF) {
+        return 0;
+      }
+      j++;
+    }
+    if (j == i + 1 || la(j - 1) == BACKSLASH) {
+      return 0;
+    }
+    return j - i + 1;
+  }
+
+  /**
+   * Matches (LINECHAR+ | LITERAL)* starting at lookahead position i
+   *
+   * @return position after the match
+   */
+  private int lineItems(int i) {
+    while (true) {
+      if (isLinechar(la(i))) {
+        i++;
+      } else {
+        final int literal = literal(i);
+        if (literal > 0) {
+          i += literal;
+        } else {
+          return i;
+        }
+      }
+    }
+  }
+
+  private int matchCelltext() {
+    if (la(1) != '|' || lb(1) == BACKSLASH || !isWs(la(2))) {
+      return 0;
+    }
+    int i = 3;
+    while (true) {
+      final int c = la(i);
+      if (c == BACKSLASH && ESCAPABLE.indexOf(la(i + 1)) != -1 && la(i + 1) != IntStream.EOF) {
+        i += 2;
+      } else if (c == '|' && la(i - 1) == BACKSLASH) {
+        i++;
+      } else if (isWs(c) || isAlphanumeric(c) || (c != IntStream.EOF && PUNCTUATION.indexOf(c) != -1)) {
+        i++;
+      } else {
+        final int literal = literal(i);
+        if (literal > 0) {
+          i += literal;
+        } else {
+          return i - 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Matches rules of the default mode
+   *
+   * @return token type in high 32 bits and match length in low 32 bits
+   */
+  private long matchDefault() {
+    final int c = la(1);
+    int bestType = 0;
+    int bestLength = 0;
+    // candidates in order of rule definition; a later rule wins only with a longer match
+    int length;
+    switch (c) {
+      case '`':
+        length = literal(1);
+        if (length > bestLength) {
+          bestType = MarkdownLexer.LITERAL;
+          bestLength = length;
+        }
+        length = matchParagraphline();
+        if (length > bestLength) {
+          bestType = MarkdownLexer.PARAGRAPHLINE;
+          bestLength = length;
+        }
+        if (la(2) == '`' && la(3) == '`' && 3 > bestLength) {
+          bestType = MarkdownLexer.OPEN_FENCE;
+          bestLength = 3;
+        }
+        if (lb(1) != BACKSLASH && 1 > bestLength) {
+          bestType = MarkdownLexer.BACKTICK;
+          bestLength = 1;
+        }
+        break;
+      case '#':
+        if (lb(1) != BACKSLASH) {
+          int i = 2;
+          while (isLinechar(la(i))) {
+            i++;
+          }
+          if (i > 2) {
+            bestType = MarkdownLexer.HEADINGLINE;
+            bestLength = i - 1;
+          } else {
+            bestType = MarkdownLexer.HASH;
+            bestLength = 1;
+          }
+        }
+        break;
+      case '>':
+        if (lb(1) != BACKSLASH) {
+          length = lineItems(2) - 1;
+          if (length > 1) {
+            bestType = MarkdownLexer.QUOTELINE;
+            bestLength = length;
+          } else {
+            bestType = MarkdownLexer.GT;
+            bestLength = 1;
+          }
+        }
+        break;
+      case '|':
+        length = matchTabledelimiter();
+        if (length > bestLength) {
+          bestType = MarkdownLexer.TABLEDELIMINATORCELL;
+          bestLength = length;
+        }
+        length = matchCelltext();
+        if (length > bestLength) {
+          bestType = MarkdownLexer.CELLTEXT;
+          bestLength = length;
+        }
+        if (lb(1) != BACKSLASH && 1 > bestLength) {
+          bestType = MarkdownLexer.PIPE;
+          bestLength = 1;
+        }
+        break;
+      case '\n':
+        bestType = MarkdownLexer.NEWLINE;
+        bestLength = 1;
+        break;
+      case '\r':
+        if (la(2) == '\n') {
+          bestType = MarkdownLexer.NEWLINE;
+          bestLength = 2;
+        }
+        break;
+      default:
+        length = matchListline();
+        if (length > bestLength) {
+          bestType = MarkdownLexer.LISTLINE;
+          bestLength = length;
+        }
+        length = matchParagraphline();
+        if (length > bestLength) {
+          bestType = MarkdownLexer.PARAGRAPHLINE;
+          bestLength = length;
+        }
+        if (c == ' ' || c == ':' || c == '-') {
+          length = matchTabledelimiter();
+          if (length > bestLength) {
+            bestType = MarkdownLexer.TABLEDELIMINATORCELL;
+            bestLength = length;
+          }
+        }
+        if (isWs(c) && 1 > bestLength) {
+          bestType = MarkdownLexer.IGNORE_WS;
+          bestLength = 1;
+        }
+        break;
+    }
+    return ((long) bestType << 32) | bestLength;
+  }
+
+  /**
+   * Matches rules of the fenced mode
+   *
+   * @return token type in high 32 bits and match length in low 32 bits
+   */
+  private long matchFenced() {
+    final int c = la(1);
+    int bestType = 0;
+    int bestLength = 0;
+    int length;
+
+    if (c == '`' && la(2) == '`' && la(3) == '`') {
+      final int next = la(4);
+      if (next == '\n') {
+        bestLength = 4;
+      } else if (next == '\r' && la(5) == '\n') {
+        bestLength = 5;
+      } else if (next == IntStream.EOF) {
+        bestLength = 3;
+      }
+      if (bestLength > 0) {
+        bestType = MarkdownLexer.CLOSE_FENCE;
+      }
+    }
+
+    final int previous = lb(1);
+    if ((previous == '\n' || previous == '\r') && c != '\n' && c != '\r'
+        && c != IntStream.EOF) {
+      int i = 2;
+      int t;
+      while ((t = la(i)) != '\n' && t != '\r' && t != IntStream.EOF) {
+        i++;
+      }
+      length = 0;
+      if (t == '\n') {
+        length = i;
+      } else if (t == '\r' && la(i + 1) == '\n') {
+        length = i + 1;
+      }
+      if (length > bestLength) {
+        bestType = MarkdownLexer.TEXTLINE;
+        bestLength = length;
+      }
+      if (1 > bestLength) {
+        bestType = MarkdownLexer.INITIALTEXTCHAR;
+        bestLength = 1;
+      }
+    }
+
+    if (c >= '0' && c <= '9') {
+      int i = 2;
+      while (la(i) >= '0' && la(i) <= '9') {
+        i++;
+      }
+      if (i - 1 > bestLength) {
+        bestType = MarkdownLexer.LINENUMBER;
+        bestLength = i - 1;
+      }
+    }
+    if (matches(1, "import") && 6 > bestLength) {
+      bestType = MarkdownLexer.IMPORT;
+      bestLength = 6;
+    }
+    if (matches(1, "from") && 4 > bestLength) {
+      bestType = MarkdownLexer.FROM;
+      bestLength = 4;
+    }
+    if (matches(1, "to") && 2 > bestLength) {
+      bestType = MarkdownLexer.TO;
+      bestLength = 2;
+    } else if (c == '-' && 1 > bestLength) {
+      bestType = MarkdownLexer.TO;
+      bestLength = 1;
+    }
+    if (c == '"') {
+      int i = 2;
+      while (isLinechar(la(i)) && la(i) != '"') {
+        i++;
+      }
+      if (la(i) == '"' && i > bestLength) {
+        bestType = MarkdownLexer.STRING;
+        bestLength = i;
+      }
+    }
+    if (isWordchar(c)) {
+      int i = 2;
+      while (isWordchar(la(i))) {
+        i++;
+      }
+      if (i - 1 > bestLength) {
+        bestType = MarkdownLexer.WORD;
+        bestLength = i - 1;
+      }
+    }
+    if (c == '\n' && 1 > bestLength) {
+      bestType = MarkdownLexer.FENCED_NEWLINE;
+      bestLength = 1;
+    } else if (c == '\r' && la(2) == '\n' && 2 > bestLength) {
+      bestType = MarkdownLexer.FENCED_NEWLINE;
+      bestLength = 2;
+    }
+    if (isWs(c) && 1 > bestLength) {
+      bestType = MarkdownLexer.FENCED_IGNORE_WS;
+      bestLength = 1;
+    }
+    return ((long) bestType << 32) | bestLength;
+  }
+
+  private int matchListline() {
+    int i = 1;
+    while (isWs(la(i))) {
+      i++;
+    }
+    final int c = la(i);
+    if (c == '-' || c == '+' || c == '*') {
+      i++;
+    } else if (c >= '1' && c <= '9' && (la(i + 1) == '.' || la(i + 1) == ')')) {
+      i += 2;
+    } else {
+      return 0;
+    }
+    if (!isWs(la(i))) {
+      return 0;
+    }
+    while (isLinechar(la(i))) {
+      i++;
+    }
+    return i - 1;
+  }
+
+  private int matchParagraphline() {
+    final int c = la(1);
+    if (c == '#' || c == '>' || c == '|' || c == '\n' || c == '\r' || c == IntStream.EOF) {
+      return 0;
+    }
+    return lineItems(2) - 1;
+  }
+
+  private int matchTabledelimiter() {
+    int i = 1;
+    if (la(i) == '|') {
+      if (lb(i) == BACKSLASH) {
+        return 0;
+      }
+      i++;
+    }
+    if (la(i) == ' ') {
+      i++;
+    }
+    if (la(i) == ':') {
+      i++;
+    }
+    if (la(i) != '-') {
+      return 0;
+    }
+    while (la(i) == '-') {
+      i++;
+    }
+    if (la(i) == ':') {
+      i++;
+    }
+    if (la(i) == ' ') {
+      i++;
+    }
+    return i - 1;
+  }
+
+  private boolean matches(int i, String text) {
+    for (int j = 0; j < text.length(); j++) {
+      if (la(i + j) != text.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reports a token recognition error
+   *
+   * @return number of characters that a generated lexer would examine before failing, not
+   *         counting the failing character
+   */
+  private int reportError(int startLine, int startCharPositionInLine) {
+    int viable = 0;
+    final int c = la(1);
+    if (c == '\r') {
+      viable = 1;
+    } else if (fenced && c == '`') {
+      while (viable < 3 && la(viable + 1) == '`') {
+        viable++;
+      }
+      if (viable == 3 && la(4) == '\r') {
+        viable = 4;
+      }
+    }
+    final int start = input.index();
+    final String text = input.getText(Interval.of(start, start + viable));
+    final StringBuilder display = new StringBuilder();
+    for (int i = 0; i < text.length(); i++) {
+      final char ch = text.charAt(i);
+      switch (ch) {
+        case '\n':
+          display.append("\\n");
+          break;
+        case '\t':
+          display.append("\\t");
+          break;
+        case '\r':
+          display.append("\\r");
+          break;
+        default:
+          display.append(ch);
+      }
+    }
+    final String msg = "token recognition error at: '" + display + "'";
+    for (final ANTLRErrorListener listener : errorListeners) {
+      listener.syntaxError(null, null, startLine, startCharPositionInLine, msg, null);
+    }
+    return viable;
+  }
+}
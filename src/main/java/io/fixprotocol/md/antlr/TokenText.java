@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Text of a token that is read from its input only when it is needed
+ *
+ * A token retains its input, so the input remains reachable until the text is read. The text is
+ * read once and kept.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class TokenText implements CharSequence {
+
+  // read on first use, then the token is released
+  private String text;
+  private Token token;
+
+  TokenText(Token token) {
+    this.token = token;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return toString().charAt(index);
+  }
+
+  @Override
+  public int length() {
+    return toString().length();
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  public synchronized String toString() {
+    if (text == null) {
+      text = token.getText();
+      token = null;
+    }
+    return text;
+  }
+}
@@ -36,9 +36,11 @@ import io.fixprotocol.md.antlr.MarkdownParser.ImportspecContext;
 import io.fixprotocol.md.antlr.MarkdownParser.InfostringContext;
 import io.fixprotocol.md.antlr.MarkdownParserBaseListener;
 import io.fixprotocol.md.antlr.MarkdownParserListener;
-import io.fixprotocol.md.util.FileImport;
+import io.fixprotocol.md.event.ParserPool;
 import io.fixprotocol.md.util.FileImport.Imported;
 import io.fixprotocol.md.util.FileSpec;
+import io.fixprotocol.md.util.ImportCache;
+import io.fixprotocol.md.util.ImportSession;
 
 /**
  * Refreshes the contents of fenced code blocks that have an import spec (a Markdown extension)
@@ -73,14 +75,27 @@ import io.fixprotocol.md.util.FileSpec;
 public class Merge2Markdown {
 
   public static class Builder {
+    public ImportCache importCache;
     public String importDir;
     public String inputFilename;
     public String outputFilename;
+    public ParserPool parserPool;
 
     public Merge2Markdown build() {
       return new Merge2Markdown(this);
     }
 
+    /**
+     * Sets a cache of imported text, which may be shared with parsers
+     *
+     * @param importCache a cache of imports. If not set, every import is read from its file.
+     * @return this Builder
+     */
+    public Builder importCache(final ImportCache importCache) {
+      this.importCache = importCache;
+      return this;
+    }
+
     public Builder importDir(final String importDir) {
       this.importDir = importDir;
       return this;
@@ -95,22 +110,34 @@ public class Merge2Markdown {
       this.outputFilename = outputFilename;
       return this;
     }
+
+    /**
+     * Sets a pool of lexers and parsers, which may be shared with other parsers
+     *
+     * @param parserPool a pool of recognizers. If not set, a new pool is created.
+     * @return this Builder
+     */
+    public Builder parserPool(final ParserPool parserPool) {
+      this.parserPool = parserPool;
+      return this;
+    }
   }
 
   private class MarkdownListener extends MarkdownParserBaseListener {
     private final Path baseDir;
-    private final FileImport fileImport = new FileImport();
+    private final ImportSession importSession;
     private final FileChannel inChannel;
     private final Logger logger = LogManager.getLogger(getClass());
     private final WritableByteChannel outChannel;
     private int readOffset = 0;
 
     public MarkdownListener(final FileInputStream inputStream, OutputStream outputStream,
-        Path baseDir) {
+        Path baseDir, ImportSession importSession) {
       super();
       this.inChannel = inputStream.getChannel();
       this.outChannel = Channels.newChannel(outputStream);
       this.baseDir = baseDir;
+      this.importSession = importSession;
     }
 
     @Override
@@ -147,9 +174,16 @@ public class Merge2Markdown {
               final String path = spec.getPath();
               if (path != null) {
                 try {
-                  final Imported imported = fileImport.importFromFile(baseDir, spec);
-                  final MappedByteBuffer buffer = imported.getBuffer();
-                  outChannel.write(buffer);
+                  if (importCache != null) {
+                    outChannel.write(importCache.importBytes(baseDir, spec));
+                  } else {
+                    final Imported imported = importSession.importFromFile(baseDir, spec);
+                    try {
+                      outChannel.write(imported.getBuffer());
+                    } finally {
+                      importSession.release(imported);
+                    }
+                  }
                 } catch (final IOException e) {
                   logger.error(
                       "Failed to import file specified by infostring for fenced code block is invalid at line {} position {}",
@@ -280,11 +314,15 @@ public class Merge2Markdown {
 
   private final Logger logger = LogManager.getLogger(getClass());
 
+  private final ImportCache importCache;
   private final String importDir;
   private final String inputFilename;
   private final String outputFilename;
+  private final ParserPool parserPool;
 
   private Merge2Markdown(Builder builder) {
+    this.parserPool = Objects.requireNonNullElseGet(builder.parserPool, ParserPool::new);
+    this.importCache = builder.importCache;
     this.importDir = builder.importDir;
     this.inputFilename = builder.inputFilename;
     this.outputFilename = builder.outputFilename;
@@ -292,9 +330,11 @@ public class Merge2Markdown {
 
   public void merge() throws IOException {
     try (FileInputStream inputStream = new FileInputStream(inputFilename);
-        FileOutputStream outputStream = new FileOutputStream(outputFilename)) {
+        FileOutputStream outputStream = new FileOutputStream(outputFilename);
+        ImportSession importSession = new ImportSession()) {
       // input is opened twice because the lexer closes the file
-      parse(inputFilename, new MarkdownListener(inputStream, outputStream, Path.of(importDir)));
+      parse(inputFilename,
+          new MarkdownListener(inputStream, outputStream, Path.of(importDir), importSession));
     }
   }
 
@@ -313,15 +353,16 @@ public class Merge2Markdown {
     final SyntaxErrorListener errorListener = new SyntaxErrorListener();
     // this reads the entire input and closes the stream
     final CharStream charStream = CharStreams.fromFileName(inputFilename);
-    final MarkdownLexer lexer = new MarkdownLexer(charStream);
-    lexer.removeErrorListeners();
-    lexer.addErrorListener(errorListener);
-    final MarkdownParser parser = new MarkdownParser(new CommonTokenStream(lexer));
-    parser.removeErrorListeners();
-    parser.addErrorListener(errorListener);
-    final ParseTreeWalker walker = new ParseTreeWalker();
-    final DocumentContext documentContext = parser.document();
-    walker.walk(markdownListener, documentContext);
+    try (ParserPool.Lease lease = parserPool.acquire()) {
+      final MarkdownLexer lexer = lease.getLexer();
+      lexer.setInputStream(charStream);
+      lexer.addErrorListener(errorListener);
+      final MarkdownParser parser = lease.getParser();
+      parser.setInputStream(new CommonTokenStream(lexer));
+      parser.addErrorListener(errorListener);
+      final DocumentContext documentContext = parser.document();
+      ParseTreeWalker.DEFAULT.walk(markdownListener, documentContext);
+    }
 
     final int errors = errorListener.getErrors();
     return (errors == 0);
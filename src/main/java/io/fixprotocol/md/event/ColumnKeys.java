@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Case-insensitive symbol table of property keys shared by the rows of a table
+ *
+ * Each key is stored once, in lower case, and identified by its ordinal position. Rows refer to
+ * keys by ordinal, so a key is not copied into each row and looking up a key does not allocate.
+ * Keys are compared without regard to case, so keys that differ only in case have the same
+ * ordinal.
+ *
+ * Keys may be added while rows are built. ColumnKeys is not safe for concurrent modification, so a
+ * row or table that is given a shared symbol table copies it before adding a key that it lacks.
+ * Rows of one table may then be modified by different threads.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class ColumnKeys {
+
+  private String[] keys;
+  private int size = 0;
+
+  /**
+   * Constructs an empty symbol table
+   */
+  public ColumnKeys() {
+    this.keys = new String[8];
+  }
+
+  /**
+   * Constructs a copy of a symbol table. Keys keep their ordinals.
+   *
+   * @param other symbol table to copy
+   */
+  public ColumnKeys(ColumnKeys other) {
+    this.keys = Arrays.copyOf(other.keys, Math.max(other.size, 8));
+    this.size = other.size;
+  }
+
+  /**
+   * Constructs a symbol table from table headings
+   *
+   * @param headings column headings in order
+   */
+  public ColumnKeys(Iterable<String> headings) {
+    this();
+    for (final String heading : headings) {
+      intern(heading);
+    }
+  }
+
+  /**
+   * Returns a key by ordinal
+   *
+   * @param ordinal position of a key
+   * @return a key in lower case
+   * @throws IndexOutOfBoundsException if there is no key at the position
+   */
+  public String get(int ordinal) {
+    Objects.checkIndex(ordinal, size);
+    return keys[ordinal];
+  }
+
+  /**
+   * Returns the ordinal of a key, adding it if not already present
+   *
+   * @param key a property key
+   * @return ordinal of the key
+   */
+  public int intern(String key) {
+    final int ordinal = ordinal(key);
+    if (ordinal != -1) {
+      return ordinal;
+    }
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+    }
+    keys[size] = key.toLowerCase();
+    return size++;
+  }
+
+  /**
+   * Returns the ordinal of a key
+   *
+   * @param key a property key
+   * @return ordinal of the key, or {@code -1} if not present
+   */
+  public int ordinal(String key) {
+    Objects.requireNonNull(key, "Missing property key");
+    for (int i = 0; i < size; i++) {
+      final String k = keys[i];
+      if (k == key || k.equalsIgnoreCase(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnKeys " + Arrays.toString(Arrays.copyOf(keys, size));
+  }
+}
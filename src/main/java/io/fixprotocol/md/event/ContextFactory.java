@@ -14,12 +14,47 @@
  */
 package io.fixprotocol.md.event;
 
+import java.util.Objects;
+import io.fixprotocol.md.event.mutable.ColumnarDetailTable;
 import io.fixprotocol.md.event.mutable.ContextImpl;
 import io.fixprotocol.md.event.mutable.DetailImpl;
 import io.fixprotocol.md.event.mutable.DetailTableImpl;
 import io.fixprotocol.md.event.mutable.DocumentationImpl;
 
 public class ContextFactory {
+
+  /**
+   * Storage layouts of tables
+   */
+  public enum TableLayout {
+    /**
+     * An object per row, suited to tables that are modified by row
+     */
+    ROWS,
+    /**
+     * An array per column and row views created on demand, suited to large tables
+     */
+    COLUMNS
+  }
+
+  private final TableLayout tableLayout;
+
+  /**
+   * Constructs a factory that creates tables stored by row
+   */
+  public ContextFactory() {
+    this(TableLayout.ROWS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param tableLayout storage layout of tables
+   */
+  public ContextFactory(TableLayout tableLayout) {
+    this.tableLayout = Objects.requireNonNull(tableLayout, "Missing tableLayout");
+  }
+
   public MutableContext createContext(int level) {
     return new ContextImpl(level);
   }
@@ -32,24 +67,46 @@ public class ContextFactory {
     return new DetailImpl();
   }
 
+  /**
+   * Create a row whose property keys are held by a shared symbol table
+   *
+   * @param keys symbol table of property keys, typically shared by the rows of a table. The row
+   *        copies it before adding a key, so rows may be modified by different threads.
+   * @return a mutable row
+   */
+  public MutableDetail createDetail(ColumnKeys keys) {
+    return new DetailImpl(keys);
+  }
+
   public MutableDetailTable createDetailTable() {
-    return new DetailTableImpl();
+    return createDetailTable(new ColumnKeys());
+  }
+
+  /**
+   * Create a table whose rows share a symbol table of property keys
+   *
+   * @param keys symbol table of property keys
+   * @return a mutable table
+   */
+  public MutableDetailTable createDetailTable(ColumnKeys keys) {
+    return tableLayout == TableLayout.COLUMNS ? new ColumnarDetailTable(keys)
+        : new DetailTableImpl(keys);
   }
 
   /**
    * Create markdown documentation as ordinary paragraphs
    *
-   * @param documentation contents
+   * @param documentation contents. Its String form is built only if requested.
    * @return a mutable documentation object
    */
-  public MutableDocumentation createDocumentation(String documentation) {
+  public MutableDocumentation createDocumentation(CharSequence documentation) {
     return new DocumentationImpl(documentation);
   }
 
   /**
    * Create markdown documentation as ordinary paragraphs
    *
-   * @param documentation contents
+   * @param documentation contents. Its String form is built only if requested.
    * @param format the format of the documentation. This corresponds to infostring of a fenced code
    *        block, as defined by the markdown specification. Originally, it was the name of a
    *        programming language to support syntax-specific highlighting. However, it has been
@@ -57,8 +114,15 @@ public class ContextFactory {
    *        type.
    * @return a mutable documentation object
    */
-  public MutableDocumentation createDocumentation(String documentation, String format) {
+  public MutableDocumentation createDocumentation(CharSequence documentation, String format) {
     return new DocumentationImpl(documentation, format);
   }
 
+
+  /**
+   * @return storage layout of tables created by this factory
+   */
+  public TableLayout getTableLayout() {
+    return tableLayout;
+  }
 }
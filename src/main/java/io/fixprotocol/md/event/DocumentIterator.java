@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.AtomTransition;
+import org.antlr.v4.runtime.atn.PlusBlockStartState;
+import org.antlr.v4.runtime.atn.PlusLoopbackState;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import io.fixprotocol.md.antlr.MarkdownEventSource;
+import io.fixprotocol.md.antlr.MarkdownParser;
+import io.fixprotocol.md.antlr.MarkdownParser.DocumentContext;
+import io.fixprotocol.md.util.ImportCache;
+
+/**
+ * Supplies document events of a parse that advances only as events are requested
+ *
+ * The parse runs on the calling thread, one block of the document at a time. When the iterator is
+ * closed, lexing and parsing stop, so a lookup costs time in proportion to the position of its
+ * answer in the document. An iterator is not safe for use by multiple threads.
+ *
+ * The loop of the {@code document} rule of the grammar is driven here rather than by the generated
+ * parser, with the same parser states, so that syntax errors are reported and recovered as in a
+ * parse of the whole document.
+ *
+ * @author Don Mendelson
+ * @see DocumentParser#open(Path, DocumentParser.ParserErrorListener)
+ */
+public final class DocumentIterator implements Iterator<GraphContext>, AutoCloseable {
+
+  private static final int BLOCK_CALL_STATE;
+  private static final IntervalSet BLOCK_FIRST;
+  private static final int EOF_STATE;
+  private static final int LOOP_BACK_STATE;
+  private static final int LOOP_ENTRY_STATE;
+
+  static {
+    final ATN atn = MarkdownParser._ATN;
+    int blockCall = ATNState.INVALID_STATE_NUMBER;
+    int eof = ATNState.INVALID_STATE_NUMBER;
+    int loopBack = ATNState.INVALID_STATE_NUMBER;
+    int loopEntry = ATNState.INVALID_STATE_NUMBER;
+    for (final ATNState state : atn.states) {
+      if (state == null || state.ruleIndex != MarkdownParser.RULE_document) {
+        continue;
+      }
+      if (state instanceof PlusBlockStartState) {
+        loopEntry = state.stateNumber;
+      } else if (state instanceof PlusLoopbackState) {
+        loopBack = state.stateNumber;
+      } else if (state.getNumberOfTransitions() == 1) {
+        if (state.transition(0) instanceof RuleTransition
+            && ((RuleTransition) state.transition(0)).ruleIndex == MarkdownParser.RULE_block) {
+          blockCall = state.stateNumber;
+        } else if (state.transition(0) instanceof AtomTransition
+            && ((AtomTransition) state.transition(0)).label == Token.EOF) {
+          eof = state.stateNumber;
+        }
+      }
+    }
+    BLOCK_CALL_STATE = blockCall;
+    EOF_STATE = eof;
+    LOOP_BACK_STATE = loopBack;
+    LOOP_ENTRY_STATE = loopEntry;
+    BLOCK_FIRST = atn.nextTokens(atn.ruleToStartState[MarkdownParser.RULE_block]);
+  }
+
+  private DocumentContext document;
+  private ParserPool.Lease lease;
+  private final MarkdownEventSource listener;
+  private final MarkdownParser parser;
+  private final Deque<GraphContext> pending = new ArrayDeque<>();
+
+  DocumentIterator(ParserPool.Lease lease, MarkdownParser parser, Path importPath,
+      EventFilter eventFilter, ContextFactory contextFactory, ImportCache importCache) {
+    this.lease = lease;
+    this.parser = parser;
+    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    parser.addParseListener(new DocumentParser.BlockPruner());
+    this.listener = new MarkdownEventSource(pending::add, importPath, eventFilter,
+        contextFactory, importCache);
+    parser.addParseListener(listener);
+  }
+
+  /**
+   * Stops parsing and returns lexer and parser to their pool. Remaining events are discarded, and
+   * imported files are released.
+   */
+  @Override
+  public void close() {
+    pending.clear();
+    release();
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (pending.isEmpty() && lease != null) {
+      try {
+        advance();
+      } catch (final RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public GraphContext next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return pending.removeFirst();
+  }
+
+  /**
+   * Returns remaining events as a sequential stream
+   *
+   * Closing the stream closes this iterator. Short-circuiting operations such as
+   * {@code findFirst()} do not close a stream, so it should be used in a try-with-resources
+   * statement.
+   *
+   * @return a stream of document events
+   */
+  public Stream<GraphContext> stream() {
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(this,
+            Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(this::close);
+  }
+
+  /**
+   * Parses the next block of the document, or the end of the document
+   */
+  private void advance() {
+    final ANTLRErrorStrategy errorHandler = parser.getErrorHandler();
+    try {
+      if (document == null) {
+        document = new DocumentContext(null, parser.getState());
+        parser.enterRule(document, 0, MarkdownParser.RULE_document);
+        parser.enterOuterAlt(document, 1);
+        parser.setState(LOOP_ENTRY_STATE);
+        errorHandler.sync(parser);
+      }
+      parser.setState(BLOCK_CALL_STATE);
+      parser.block();
+      parser.setState(LOOP_BACK_STATE);
+      errorHandler.sync(parser);
+      if (BLOCK_FIRST.contains(parser.getInputStream().LA(1))) {
+        return;
+      }
+      parser.setState(EOF_STATE);
+      parser.match(Token.EOF);
+    } catch (final RecognitionException e) {
+      document.exception = e;
+      errorHandler.reportError(parser, e);
+      errorHandler.recover(parser, e);
+    }
+    // end of document delivers any pending documentation
+    parser.exitRule();
+    release();
+  }
+
+  private void release() {
+    if (lease != null) {
+      // an early close leaves the parser within the document rule
+      parser.setState(ATNState.INVALID_STATE_NUMBER);
+      lease.close();
+      lease = null;
+      listener.close();
+    }
+  }
+}
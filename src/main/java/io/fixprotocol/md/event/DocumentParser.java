@@ -16,26 +16,341 @@ package io.fixprotocol.md.event;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
-import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.Pair;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.antlr.ByteBufferCharStream;
 import io.fixprotocol.md.antlr.MarkdownEventSource;
 import io.fixprotocol.md.antlr.MarkdownLexer;
 import io.fixprotocol.md.antlr.MarkdownParser;
+import io.fixprotocol.md.antlr.MarkdownParser.BlockContext;
 import io.fixprotocol.md.antlr.MarkdownParser.DocumentContext;
 import io.fixprotocol.md.antlr.MarkdownParserBaseListener;
+import io.fixprotocol.md.antlr.MarkdownTokenSource;
+import io.fixprotocol.md.util.ImportCache;
 
+/**
+ * Parses Markdown documents and supplies document events to a consumer
+ *
+ * A DocumentParser may be used by multiple threads concurrently. Lexers and parsers are borrowed
+ * from a {@link ParserPool} for the duration of each parse. A pool may also be shared by several
+ * DocumentParser instances. Other state, including the consumer of document events, belongs to a
+ * single parse and is not shared. Several documents may be parsed concurrently with
+ * {@link #parseAll(Collection, Function)}.
+ */
 public final class DocumentParser {
 
+  public static class Builder {
+    public ContextFactory contextFactory;
+    public EventFilter eventFilter = EventFilter.ALL;
+    public Executor executor;
+    public ImportCache importCache;
+    public LexerBackend lexerBackend = LexerBackend.MARKDOWN_LEXER;
+    public ParserPool pool;
+    public boolean prefetchImports = false;
+    public boolean sectioned = false;
+    public boolean streaming = false;
+    public TableEvents tableEvents = TableEvents.BOTH;
+    public boolean twoStage = true;
+    public boolean unbuffered = false;
+    public int unbufferedSize = DEFAULT_UNBUFFERED_SIZE;
+
+    public DocumentParser build() {
+      return new DocumentParser(this);
+    }
+
+    /**
+     * Sets the factory that creates document events
+     *
+     * @param contextFactory creates events. If not set, a factory with default settings is used.
+     * @return this Builder
+     */
+    public Builder contextFactory(final ContextFactory contextFactory) {
+      this.contextFactory = contextFactory;
+      return this;
+    }
+
+    /**
+     * Selects the document events to build and deliver
+     *
+     * Events that are not accepted by the filter are not built, except in sectioned mode, where
+     * the heading of an event may not be known until sections are joined. The filter does not
+     * apply to {@link DocumentParser#parseIncremental(String, Path)}, which retains all events.
+     *
+     * @param eventFilter selects events. Default is {@link EventFilter#ALL}.
+     * @return this Builder
+     */
+    public Builder eventFilter(final EventFilter eventFilter) {
+      this.eventFilter = eventFilter;
+      return this;
+    }
+
+    /**
+     * Sets the executor that runs concurrent parses of multiple documents and published parses
+     *
+     * @param executor runs one task per document. If not set, the common fork-join pool is used.
+     * @return this Builder
+     * @see DocumentParser#parseAll(Collection, Function)
+     * @see DocumentParser#publisher(Path, ParserErrorListener)
+     */
+    public Builder executor(final Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Sets a cache of text imported by fenced code blocks
+     *
+     * A cache may be shared by parsers, including parsers on other threads, so a file or range of a
+     * file that is imported repeatedly is read once.
+     *
+     * @param importCache a cache of imports. If not set, every import is read from its file.
+     * @return this Builder
+     */
+    public Builder importCache(final ImportCache importCache) {
+      this.importCache = importCache;
+      return this;
+    }
+
+    /**
+     * Selects the kind of lexer
+     *
+     * @param lexerBackend kind of lexer. Default is {@link LexerBackend#MARKDOWN_LEXER}.
+     * @return this Builder
+     */
+    public Builder lexerBackend(final LexerBackend lexerBackend) {
+      this.lexerBackend = Objects.requireNonNull(lexerBackend, "Missing lexerBackend");
+      return this;
+    }
+
+    /**
+     * Sets a pool of lexers and parsers. A pool may be shared by several DocumentParser instances.
+     *
+     * @param pool a pool of recognizers. If not set, a new pool is created for the DocumentParser.
+     * @return this Builder
+     */
+    public Builder pool(final ParserPool pool) {
+      this.pool = pool;
+      return this;
+    }
+
+    /**
+     * Selects prefetch of file imports
+     *
+     * After a document or section is parsed, files imported by its fenced code blocks are read
+     * concurrently by the executor of this parser, while events are delivered in document order.
+     * An import that the executor has not started when its block is reached is read by the parsing
+     * thread, so a parse run by the same executor, as by {@code parseAll} or a section worker, does
+     * not wait for tasks queued behind it. Prefetch is not applied in streaming or unbuffered mode,
+     * since a block is delivered as soon as it is parsed.
+     *
+     * @param prefetchImports {@code true} to read imported files concurrently. Default is
+     *        {@code false}.
+     * @return this Builder
+     */
+    public Builder prefetchImports(final boolean prefetchImports) {
+      this.prefetchImports = prefetchImports;
+      return this;
+    }
+
+    /**
+     * Selects sectioned mode
+     *
+     * In sectioned mode, a document is lexed, then split into sections at level 1 and level 2
+     * headings. Sections are parsed concurrently by the executor of this parser, and the calling
+     * thread delivers their events in document order with the heading hierarchy of a sequential
+     * parse. Lexer and parser errors are reported in the order of a sequential parse, each before
+     * the events of the section in which it occurs. Since error recovery may take tokens of the
+     * next section, a section with syntax errors is parsed again together with the sections that
+     * follow it until the last of them has no errors. Sectioned mode is not applied in streaming or
+     * unbuffered mode since the whole document is held in memory.
+     *
+     * @param sectioned {@code true} to parse sections of a document concurrently. Default is
+     *        {@code false}.
+     * @return this Builder
+     */
+    public Builder sectioned(final boolean sectioned) {
+      this.sectioned = sectioned;
+      return this;
+    }
+
+    /**
+     * Selects streaming mode
+     *
+     * In streaming mode, document events are emitted while the document is parsed rather than by
+     * walking a complete parse tree afterwards. Each top level block is detached from the parse
+     * tree after its events are emitted, so heap usage does not grow with document size.
+     *
+     * @param streaming {@code true} to emit events during parsing. Default is {@code false}.
+     * @return this Builder
+     */
+    public Builder streaming(final boolean streaming) {
+      this.streaming = streaming;
+      return this;
+    }
+
+    /**
+     * Selects whether tables are delivered as rows, whole tables or both
+     *
+     * Only the selected events are built, so selecting one kind avoids copying cell values into a
+     * second set of objects. Like an event filter, the selection does not apply to
+     * {@link DocumentParser#parseIncremental(String, Path)}.
+     *
+     * @param tableEvents kinds of table events. Default is {@link TableEvents#BOTH}.
+     * @return this Builder
+     */
+    public Builder tableEvents(final TableEvents tableEvents) {
+      this.tableEvents = Objects.requireNonNull(tableEvents, "Missing tableEvents");
+      return this;
+    }
+
+    /**
+     * Selects two-stage prediction
+     *
+     * The document is first parsed with fast SLL prediction and a bail-out error strategy. Only if
+     * that fails is it parsed again with full LL prediction and normal error recovery. Results and
+     * error reports are the same either way. Two-stage prediction requires rewinding the input, so
+     * it is not applied in streaming or unbuffered mode.
+     *
+     * @param twoStage {@code true} to try SLL prediction first. Default is {@code true}.
+     * @return this Builder
+     */
+    public Builder twoStage(final boolean twoStage) {
+      this.twoStage = twoStage;
+      return this;
+    }
+
+    /**
+     * Selects bounded-memory input
+     *
+     * Input characters and tokens are read through sliding windows that only retain the
+     * lookahead needed for the current block, instead of reading the whole document into memory.
+     * Offsets of document events are unaffected. Since a complete parse tree would retain every
+     * token, unbuffered input implies streaming mode for parsing.
+     *
+     * @param unbuffered {@code true} to read input through sliding windows. Default is
+     *        {@code false}.
+     * @return this Builder
+     */
+    public Builder unbuffered(final boolean unbuffered) {
+      this.unbuffered = unbuffered;
+      return this;
+    }
+
+    /**
+     * Sets the initial size of sliding windows for unbuffered input. A window grows if lookahead
+     * requires it.
+     *
+     * @param unbufferedSize initial window size in characters or tokens
+     * @return this Builder
+     */
+    public Builder unbufferedSize(final int unbufferedSize) {
+      this.unbufferedSize = unbufferedSize;
+      return this;
+    }
+  }
+
+  /**
+   * Kinds of lexer that produce tokens for the Markdown parser. All kinds produce the same tokens
+   * and lexer errors, including after error recovery in malformed input.
+   */
+  public enum LexerBackend {
+    /**
+     * Lexer generated from the MarkdownLexer grammar
+     */
+    MARKDOWN_LEXER,
+    /**
+     * Lexer generated from a grammar without semantic predicates, so all of its DFA states can be
+     * cached
+     */
+    PREDICATE_FREE,
+    /**
+     * Hand-coded scanner that does not simulate an ATN
+     */
+    HAND_CODED
+  }
+
+  /**
+   * Kinds of events that represent a Markdown table
+   */
+  public enum TableEvents {
+    /**
+     * A {@link Detail} event for each row of a table
+     */
+    ROWS,
+    /**
+     * A {@link DetailTable} event for each table, containing all of its rows
+     */
+    TABLES,
+    /**
+     * Both row and table events. Row events of a table precede its table event.
+     */
+    BOTH
+  }
+
+  /**
+   * A parse that reports errors to a listener
+   */
+  @FunctionalInterface
+  private interface ListenedParse {
+    void parse(ParserErrorListener parserListener) throws IOException;
+  }
+
+  /**
+   * Events and errors of a section of a document, held until they can be delivered in order
+   */
+  private static class Section {
+    final List<ParseResult.Error> errors = new ArrayList<>();
+    final List<GraphContext> events = new ArrayList<>();
+  }
+
   /**
    * Listens for parser errors
    */
@@ -72,6 +387,111 @@ public final class DocumentParser {
     }
   }
 
+  /**
+   * Detaches each block from the parse tree once it has been fully processed
+   *
+   * Parse listeners receive exit events in reverse order of registration, so this listener must be
+   * added before the event source to run after it.
+   */
+  static class BlockPruner extends MarkdownParserBaseListener {
+
+    @Override
+    public void exitBlock(BlockContext ctx) {
+      final ParserRuleContext parent = ctx.getParent();
+      if (parent != null) {
+        parent.removeLastChild();
+      }
+    }
+  }
+
+  /**
+   * Default initial size of sliding windows for unbuffered input
+   */
+  public static final int DEFAULT_UNBUFFERED_SIZE = 4096;
+
+  /**
+   * Minimum number of tokens in a section of a document parsed in sectioned mode. Adjacent sections
+   * are merged to amortize the cost of a parse.
+   */
+  static final int MIN_SECTION_TOKENS = 512;
+
+  /**
+   * Copies token text, except that EOF is given its display text. Copied text of EOF would be
+   * empty, and an unbuffered stream cannot supply it later.
+   */
+  private static final TokenFactory<CommonToken> COPY_TEXT_FACTORY = new CommonTokenFactory(true) {
+    @Override
+    public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text,
+        int channel, int start, int stop, int line, int charPositionInLine) {
+      final CommonToken token =
+          super.create(source, type, text, channel, start, stop, line, charPositionInLine);
+      if (type == Token.EOF) {
+        token.setText("<EOF>");
+      }
+      return token;
+    }
+  };
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final ContextFactory contextFactory;
+  private final EventFilter eventFilter;
+  private final Executor executor;
+  private final ImportCache importCache;
+  private final LexerBackend lexerBackend;
+  private final ParserPool pool;
+  private final boolean prefetchImports;
+  private final boolean sectioned;
+  private final boolean streaming;
+  private final TableEvents tableEvents;
+  private final EventFilter tableFilter;
+  private final boolean twoStage;
+  private final boolean unbuffered;
+  private final int unbufferedSize;
+
+  /**
+   * Constructs a parser with default settings
+   */
+  public DocumentParser() {
+    this(new Builder());
+  }
+
+  private DocumentParser(Builder builder) {
+    this.contextFactory =
+        Objects.requireNonNullElseGet(builder.contextFactory, ContextFactory::new);
+    this.tableEvents = Objects.requireNonNullElse(builder.tableEvents, TableEvents.BOTH);
+    switch (tableEvents) {
+      case ROWS:
+        this.tableFilter = EventFilter.types(Context.class, Documentation.class, Detail.class);
+        break;
+      case TABLES:
+        this.tableFilter = EventFilter.types(Context.class, Documentation.class, DetailTable.class);
+        break;
+      default:
+        this.tableFilter = EventFilter.ALL;
+    }
+    final EventFilter filter = Objects.requireNonNullElse(builder.eventFilter, EventFilter.ALL);
+    if (tableFilter == EventFilter.ALL) {
+      this.eventFilter = filter;
+    } else if (filter == EventFilter.ALL) {
+      this.eventFilter = tableFilter;
+    } else {
+      this.eventFilter = filter.and(tableFilter);
+    }
+    this.executor = Objects.requireNonNullElseGet(builder.executor, ForkJoinPool::commonPool);
+    this.importCache = builder.importCache;
+    this.lexerBackend = builder.lexerBackend;
+    this.pool = Objects.requireNonNullElseGet(builder.pool, ParserPool::new);
+    this.prefetchImports = builder.prefetchImports;
+    this.unbuffered = builder.unbuffered;
+    this.sectioned = builder.sectioned;
+    this.streaming = builder.streaming || builder.unbuffered;
+    this.unbufferedSize = builder.unbufferedSize;
+    this.twoStage = builder.twoStage;
+  }
+
   /**
    * Parse a Markdown document
    *
@@ -98,21 +518,384 @@ public final class DocumentParser {
   public boolean parse(InputStream inputStream, Consumer<? super GraphContext> contextConsumer,
       ParserErrorListener parserListener, Path importPath) throws IOException {
     Objects.requireNonNull(inputStream, "Missing inputStream");
-    Objects.requireNonNull(contextConsumer, "Missing contextConsumer");
-    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
-    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromStream(inputStream));
-    lexer.removeErrorListeners();
-    lexer.addErrorListener(errorListener);
-    final MarkdownParser parser = new MarkdownParser(new CommonTokenStream(lexer));
-    parser.removeErrorListeners();
-    parser.addErrorListener(errorListener);
-    final ParseTreeListener listener = new MarkdownEventSource(contextConsumer, importPath);
-    final ParseTreeWalker walker = new ParseTreeWalker();
-    final DocumentContext documentContext = parser.document();
-    walker.walk(listener, documentContext);
+    return parse(newCharStream(inputStream), contextConsumer, parserListener, importPath);
+  }
 
-    final int errors = errorListener.getErrors();
-    return (errors == 0);
+  /**
+   * Parse a Markdown document, delivering events in batches
+   *
+   * @param inputStream input as markdown. Text is assumed to encoded as UTF-8.
+   * @param batchConsumer consumer of batches of document events. A list is reused after the
+   *        consumer returns, so events must be copied to be retained.
+   * @param batchSize maximum number of events in a batch
+   * @param sectionLevel a heading at this level or lower starts a new batch, or
+   *        {@link EventBatcher#NO_SECTIONS} to deliver batches by size only
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @param importPath base directory for file imports (if any). May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the document cannot be read
+   * @see EventBatcher
+   */
+  public boolean parseBatched(InputStream inputStream,
+      Consumer<? super List<GraphContext>> batchConsumer, int batchSize, int sectionLevel,
+      ParserErrorListener parserListener, Path importPath) throws IOException {
+    final EventBatcher batcher = new EventBatcher(batchConsumer, batchSize, sectionLevel);
+    final boolean isSuccessful = parse(inputStream, batcher, parserListener, importPath);
+    batcher.flush();
+    return isSuccessful;
+  }
+
+  /**
+   * Parse a Markdown file by mapping it into memory
+   *
+   * Characters are decoded from the mapped file as they are lexed, rather than copied to the heap
+   * before lexing starts. File imports are resolved relative to the directory of the file. Text of
+   * events is copied from the file before delivery, so events do not depend on the mapping.
+   *
+   * @param path file containing markdown. Text is assumed to encoded as UTF-8.
+   * @param contextConsumer consumer of document events
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return {@code true} if the document is fully parsed without errors
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public boolean parse(Path path, Consumer<? super GraphContext> contextConsumer,
+      ParserErrorListener parserListener) throws IOException {
+    Objects.requireNonNull(path, "Missing path");
+    return parse(map(path), contextConsumer, parserListener, path.toAbsolutePath().getParent());
+  }
+
+  /**
+   * Opens a Markdown file for parsing as events are requested
+   *
+   * The file is mapped into memory as by {@link #parse(Path, Consumer, ParserErrorListener)}, but
+   * it is lexed and parsed only as far as needed to supply requested events. Prediction is always
+   * full LL since a block cannot be parsed again once its events are supplied. Sectioned and
+   * streaming modes do not apply.
+   *
+   * @param path file containing markdown. Text is assumed to encoded as UTF-8.
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return an iterator of document events that must be closed if not exhausted
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public DocumentIterator open(Path path, ParserErrorListener parserListener) throws IOException {
+    Objects.requireNonNull(path, "Missing path");
+    return open(map(path), parserListener, path.toAbsolutePath().getParent());
+  }
+
+  /**
+   * Opens a Markdown stream for parsing as events are requested
+   *
+   * @param inputStream input as markdown. Text is assumed to encoded as UTF-8. The stream is not
+   *        closed.
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @param importPath base directory for file imports (if any). May be {@code null}.
+   * @return an iterator of document events that must be closed if not exhausted
+   * @throws IOException if the document cannot be read
+   * @see #open(Path, ParserErrorListener)
+   */
+  public DocumentIterator open(InputStream inputStream, ParserErrorListener parserListener,
+      Path importPath) throws IOException {
+    Objects.requireNonNull(inputStream, "Missing inputStream");
+    return open(newCharStream(inputStream), parserListener, importPath);
+  }
+
+  /**
+   * Parses a Markdown document so that it can be updated incrementally
+   *
+   * @param text document as markdown
+   * @param importPath base directory for file imports (if any). May be {@code null}.
+   * @return a parsed document. Syntax errors are recorded in it rather than reported.
+   * @see #reparse(ParsedDocument, int, int, String)
+   */
+  public ParsedDocument parseIncremental(String text, Path importPath) {
+    Objects.requireNonNull(text, "Missing text");
+    final List<ParsedDocument.Segment> segments = new ArrayList<>();
+    lexSegments(CharStreams.fromString(text), 0, 1, Integer.MAX_VALUE, Map.of(), importPath,
+        segments);
+    stitch(segments, 0, segments.size());
+    return new ParsedDocument(text, importPath, segments);
+  }
+
+  /**
+   * Updates a parsed document with an edit
+   *
+   * Only the segments of the document affected by the edit are lexed and parsed again. A segment
+   * is a run of blocks that starts with a heading. Lexing continues past the edit until it reaches
+   * an unchanged segment, so an edit that opens a fenced code block re-parses up to where it
+   * closes. Since an inline literal may span lines, an edit that adds or removes a backtick is
+   * lexed from the first segment with an unmatched backtick or a lexer error.
+   *
+   * Offsets count Unicode code points, like the offsets of document contexts.
+   *
+   * @param previous document to update. It is superseded by the updated document.
+   * @param offset position of the edit
+   * @param removedLength number of characters removed at the position
+   * @param insertedText text inserted at the position
+   * @return the updated document and its changed contexts
+   * @throws IllegalStateException if {@code previous} was already updated
+   * @throws IndexOutOfBoundsException if the edit is outside of the document
+   */
+  public DocumentUpdate reparse(ParsedDocument previous, int offset, int removedLength,
+      String insertedText) {
+    Objects.requireNonNull(previous, "Missing previous");
+    Objects.requireNonNull(insertedText, "Missing insertedText");
+    final String oldText = previous.getText();
+    final int begin = oldText.offsetByCodePoints(0, offset);
+    final int end = oldText.offsetByCodePoints(begin, removedLength);
+    previous.supersede();
+    final String text = oldText.substring(0, begin) + insertedText + oldText.substring(end);
+    final int insertedLength = insertedText.codePointCount(0, insertedText.length());
+    final int offsetDelta = insertedLength - removedLength;
+    final int lineDelta = countLines(insertedText, 0, insertedText.length())
+        - countLines(oldText, begin, end);
+
+    // The heading that starts the segment containing the edit may itself be edited, so start with
+    // the segment before it.
+    final List<ParsedDocument.Segment> oldSegments = previous.getSegments();
+    int first = 0;
+    while (first + 1 < oldSegments.size() && oldSegments.get(first + 1).startOffset <= offset) {
+      first++;
+    }
+    first = Math.max(0, first - 1);
+    // A literal may span lines and headings, so a backtick added or removed by the edit may match
+    // an unmatched backtick of any earlier segment.
+    if (insertedText.indexOf('`') != -1 || oldText.substring(begin, end).indexOf('`') != -1) {
+      for (int i = 0; i < first; i++) {
+        if (oldSegments.get(i).unclosed) {
+          first = i;
+          break;
+        }
+      }
+    }
+
+    // Segments after the edit, keyed by their offsets in the updated text
+    final Map<Integer, Integer> resyncOffsets = new HashMap<>();
+    for (int i = first + 1; i < oldSegments.size(); i++) {
+      final int startOffset = oldSegments.get(i).startOffset;
+      if (startOffset >= offset + removedLength) {
+        resyncOffsets.put(startOffset + offsetDelta, i);
+      }
+    }
+
+    final ParsedDocument.Segment firstSegment = oldSegments.get(first);
+    final List<ParsedDocument.Segment> replacements = new ArrayList<>();
+    int resync = lexSegments(CharStreams.fromString(text), firstSegment.startOffset,
+        firstSegment.line, offset + insertedLength, resyncOffsets, previous.getImportPath(),
+        replacements);
+    if (resync == -1) {
+      resync = oldSegments.size();
+    }
+
+    final List<GraphContext> removed = new ArrayList<>();
+    for (final ParsedDocument.Segment segment : oldSegments.subList(first, resync)) {
+      removed.addAll(segment.events);
+    }
+    final List<GraphContext> added = new ArrayList<>();
+    for (final ParsedDocument.Segment segment : replacements) {
+      added.addAll(segment.events);
+    }
+    final List<ParsedDocument.Segment> retained = oldSegments.subList(resync, oldSegments.size());
+    if (offsetDelta != 0 || lineDelta != 0) {
+      for (final ParsedDocument.Segment segment : retained) {
+        segment.shift(offsetDelta, lineDelta);
+      }
+    }
+
+    final List<ParsedDocument.Segment> segments = new ArrayList<>(oldSegments.subList(0, first));
+    segments.addAll(replacements);
+    segments.addAll(retained);
+    final List<GraphContext> changed =
+        stitch(segments, first, first + replacements.size());
+    return new DocumentUpdate(new ParsedDocument(text, previous.getImportPath(), segments), added,
+        removed, changed);
+  }
+
+  /**
+   * Parses Markdown files concurrently
+   *
+   * Each file is parsed by a task run by the executor of this parser. Events of a document are
+   * delivered in order to its own consumer on the thread that parses it, but documents are parsed
+   * in no particular order. File imports are resolved relative to the directory of each file.
+   *
+   * @param paths files to parse. Text is assumed to encoded as UTF-8.
+   * @param consumerFactory supplies a consumer of document events for each file. It may be invoked
+   *        concurrently.
+   * @return a result for each file, in the order of {@code paths}
+   */
+  public List<ParseResult> parseAll(Collection<Path> paths,
+      Function<? super Path, ? extends Consumer<? super GraphContext>> consumerFactory) {
+    Objects.requireNonNull(paths, "Missing paths");
+    Objects.requireNonNull(consumerFactory, "Missing consumerFactory");
+    final List<CompletableFuture<ParseResult>> futures = new ArrayList<>(paths.size());
+    for (final Path path : paths) {
+      futures.add(CompletableFuture.supplyAsync(() -> parseResult(path.toString(),
+          listener -> parse(path, consumerFactory.apply(path), listener)), executor));
+    }
+    return join(futures);
+  }
+
+  /**
+   * Parses Markdown streams concurrently
+   *
+   * Each stream is parsed by a task run by the executor of this parser. Events of a document are
+   * delivered in order to its own consumer on the thread that parses it, but documents are parsed
+   * in no particular order. Streams are not closed.
+   *
+   * @param inputStreams input as markdown keyed by document name. Text is assumed to encoded as
+   *        UTF-8.
+   * @param consumerFactory supplies a consumer of document events for each document name. It may
+   *        be invoked concurrently.
+   * @param importPath base directory for file imports (if any). May be {@code null}.
+   * @return a result for each document, in the iteration order of {@code inputStreams}
+   */
+  public List<ParseResult> parseAll(Map<String, ? extends InputStream> inputStreams,
+      Function<? super String, ? extends Consumer<? super GraphContext>> consumerFactory,
+      Path importPath) {
+    Objects.requireNonNull(inputStreams, "Missing inputStreams");
+    Objects.requireNonNull(consumerFactory, "Missing consumerFactory");
+    final List<CompletableFuture<ParseResult>> futures = new ArrayList<>(inputStreams.size());
+    for (final Map.Entry<String, ? extends InputStream> entry : inputStreams.entrySet()) {
+      final String name = entry.getKey();
+      futures.add(CompletableFuture.supplyAsync(() -> parseResult(name, listener -> parse(
+          entry.getValue(), consumerFactory.apply(name), listener, importPath)), executor));
+    }
+    return join(futures);
+  }
+
+  /**
+   * Publishes events of a Markdown file as a subscriber demands them
+   *
+   * Each subscriber receives events of its own parse of the file, run by the executor of this
+   * parser. The parse waits while the subscriber has no outstanding demand, so events are not
+   * buffered. In streaming mode, parsing itself is held back; otherwise, the document is parsed
+   * before its events are delivered. A failure to read the file is signaled by
+   * {@code onError()}, while syntax errors are reported to the error listener.
+   *
+   * @param path file containing markdown. Text is assumed to encoded as UTF-8.
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @return a publisher of document events
+   * @see #parse(Path, Consumer, ParserErrorListener)
+   */
+  public Flow.Publisher<GraphContext> publisher(Path path, ParserErrorListener parserListener) {
+    Objects.requireNonNull(path, "Missing path");
+    return new DocumentPublisher(consumer -> parse(path, consumer, parserListener), true,
+        executor);
+  }
+
+  /**
+   * Publishes events of a Markdown stream as a subscriber demands them
+   *
+   * Since a stream can only be read once, only the first subscriber is accepted. Others receive
+   * {@code onError()}. The stream is not closed.
+   *
+   * @param inputStream input as markdown. Text is assumed to encoded as UTF-8.
+   * @param parserListener listens for parser errors. May be {@code null}.
+   * @param importPath base directory for file imports (if any). May be {@code null}.
+   * @return a publisher of document events
+   * @see #publisher(Path, ParserErrorListener)
+   */
+  public Flow.Publisher<GraphContext> publisher(InputStream inputStream,
+      ParserErrorListener parserListener, Path importPath) {
+    Objects.requireNonNull(inputStream, "Missing inputStream");
+    return new DocumentPublisher(
+        consumer -> parse(inputStream, consumer, parserListener, importPath), false, executor);
+  }
+
+  /**
+   * @return the factory that creates document events
+   */
+  public ContextFactory getContextFactory() {
+    return contextFactory;
+  }
+
+  /**
+   * @return the cache of imported text, or {@code null} if imports are not cached
+   */
+  public ImportCache getImportCache() {
+    return importCache;
+  }
+
+  /**
+   * @return the filter that selects document events to build and deliver, combined with the
+   *         selection of table events
+   */
+  public EventFilter getEventFilter() {
+    return eventFilter;
+  }
+
+  /**
+   * @return the executor that runs concurrent parses of multiple documents and published parses
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * @return the kind of lexer used by this parser
+   */
+  public LexerBackend getLexerBackend() {
+    return lexerBackend;
+  }
+
+  /**
+   * Returns the pool of lexers and parsers used by this parser
+   *
+   * @return a pool of recognizers
+   */
+  public ParserPool getPool() {
+    return pool;
+  }
+
+  /**
+   * @return the kinds of events that represent a Markdown table
+   */
+  public TableEvents getTableEvents() {
+    return tableEvents;
+  }
+
+  /**
+   * Tells whether this parser reads imported files concurrently
+   *
+   * @return {@code true} if prefetch of file imports is selected
+   */
+  public boolean isPrefetchImports() {
+    return prefetchImports;
+  }
+
+  /**
+   * Tells whether this parser tries SLL prediction before full LL prediction
+   *
+   * @return {@code true} if two-stage prediction is selected
+   */
+  public boolean isTwoStage() {
+    return twoStage;
+  }
+
+  /**
+   * Tells whether this parser reads input through sliding windows
+   *
+   * @return {@code true} if bounded-memory input is selected
+   */
+  public boolean isUnbuffered() {
+    return unbuffered;
+  }
+
+  /**
+   * Tells whether this parser splits documents into sections that are parsed concurrently
+   *
+   * @return {@code true} if sectioned mode is selected and applicable
+   */
+  public boolean isSectioned() {
+    return sectioned && !streaming;
+  }
+
+  /**
+   * Tells whether this parser emits events while parsing
+   *
+   * @return {@code true} if streaming mode is selected
+   */
+  public boolean isStreaming() {
+    return streaming;
   }
 
   /**
@@ -126,16 +909,550 @@ public final class DocumentParser {
   public boolean validate(InputStream inputStream, ParserErrorListener parserListener)
       throws IOException {
     final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
-    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromStream(inputStream));
-    lexer.removeErrorListeners();
-    lexer.addErrorListener(errorListener);
-    final MarkdownParser parser = new MarkdownParser(new CommonTokenStream(lexer));
-    parser.removeErrorListeners();
-    parser.addErrorListener(errorListener);
-    final ParseTreeWalker walker = new ParseTreeWalker();
-    final DocumentContext documentContext = parser.document();
-    walker.walk(new MarkdownParserBaseListener(), documentContext);
+    try (ParserPool.Lease lease = pool.acquire()) {
+      final MarkdownParser parser = prepare(lease, newCharStream(inputStream), errorListener);
+      if (unbuffered) {
+        parser.setBuildParseTree(false);
+        parser.document();
+      } else {
+        final DocumentContext documentContext = parseDocument(parser, errorListener);
+        ParseTreeWalker.DEFAULT.walk(new MarkdownParserBaseListener(), documentContext);
+      }
+    }
+    final int errors = errorListener.getErrors();
+    return (errors == 0);
+  }
+
+  private DocumentIterator open(CharStream charStream, ParserErrorListener parserListener,
+      Path importPath) {
+    final ParserPool.Lease lease = pool.acquire();
+    try {
+      final MarkdownParser parser =
+          prepare(lease, charStream, new SyntaxErrorListener(parserListener));
+      return new DocumentIterator(lease, parser, importPath, eventFilter, contextFactory,
+          importCache);
+    } catch (final RuntimeException e) {
+      lease.close();
+      throw e;
+    }
+  }
+
+  private boolean parse(CharStream charStream, Consumer<? super GraphContext> contextConsumer,
+      ParserErrorListener parserListener, Path importPath) {
+    Objects.requireNonNull(contextConsumer, "Missing contextConsumer");
+    final SyntaxErrorListener errorListener = new SyntaxErrorListener(parserListener);
+    if (sectioned && !streaming) {
+      parseSections(charStream, contextConsumer, errorListener, importPath);
+      return errorListener.getErrors() == 0;
+    }
+    try (ParserPool.Lease lease = pool.acquire()) {
+      final MarkdownParser parser = prepare(lease, charStream, errorListener);
+      try (MarkdownEventSource listener = new MarkdownEventSource(contextConsumer, importPath,
+          eventFilter, contextFactory, importCache)) {
+        if (streaming) {
+          parser.addParseListener(new BlockPruner());
+          parser.addParseListener(listener);
+          parser.document();
+        } else {
+          final DocumentContext documentContext = parseDocument(parser, errorListener);
+          if (prefetchImports) {
+            listener.prefetchImports(documentContext, executor);
+          }
+          ParseTreeWalker.DEFAULT.walk(listener, documentContext);
+        }
+      }
+    }
+
     final int errors = errorListener.getErrors();
     return (errors == 0);
   }
+
+  private static CharStream map(Path path) throws IOException {
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // a mapping remains valid after its channel is closed
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    return new ByteBufferCharStream(buffer, path.toString());
+  }
+
+  private CharStream newCharStream(InputStream inputStream) throws IOException {
+    if (unbuffered) {
+      return new UnbufferedCharStream(inputStream, unbufferedSize, StandardCharsets.UTF_8);
+    } else {
+      return CharStreams.fromStream(inputStream);
+    }
+  }
+
+  /**
+   * Finds the indexes of tokens that start sections of a document
+   *
+   * A section starts with a level 1 or level 2 heading at the start of a line. Since tokens are
+   * lexed in advance, headings within fenced code blocks are not mistaken for split points.
+   */
+  static List<Integer> sectionStarts(List<Token> tokens, int minSectionTokens) {
+    final List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    for (int i = 1; i < tokens.size(); i++) {
+      final Token token = tokens.get(i);
+      if (token.getType() != MarkdownLexer.HEADINGLINE) {
+        continue;
+      }
+      final int level = token.getText().indexOf(' ');
+      if (level != 1 && level != 2) {
+        continue;
+      }
+      final int start = splitBefore(tokens, i);
+      if (start != -1 && start - starts.get(starts.size() - 1) >= minSectionTokens) {
+        starts.add(start);
+      }
+    }
+    return starts;
+  }
+
+  /**
+   * Finds where a document may be split before a heading, so that its parts parse like the whole
+   *
+   * A heading starts a block if it is at the start of a line. Blank lines before a heading belong
+   * to the heading, as in a sequential parse.
+   *
+   * @param tokens lexed document
+   * @param i index of a {@code HEADINGLINE} token
+   * @return index of the first token of the heading block, or -1 if the heading does not start a
+   *         line or is the first token
+   */
+  static int splitBefore(List<Token> tokens, int i) {
+    if (i == 0 || tokens.get(i).getCharPositionInLine() != 0) {
+      return -1;
+    }
+    int start = i;
+    while (start > 0 && tokens.get(start - 1).getType() == MarkdownLexer.NEWLINE) {
+      start--;
+    }
+    if (start == i) {
+      if (tokens.get(i - 1).getType() != MarkdownLexer.CLOSE_FENCE) {
+        return -1;
+      }
+    } else if (start > 0 && tokens.get(start - 1).getType() != MarkdownLexer.CLOSE_FENCE) {
+      // the first newline ends the preceding line unless it follows a closing fence
+      start++;
+    }
+    return start > 0 ? start : -1;
+  }
+
+  /**
+   * Delivers errors and events of a section in order, restoring parents that were outside of the
+   * section
+   *
+   * Lexer errors of the section are merged with its parser errors by position, as a sequential
+   * parse would report them.
+   *
+   * The chain of heading contexts is maintained as in {@link MarkdownEventSource}. An event without
+   * a parent took its place in the heading hierarchy when the section was parsed, so its parent is
+   * the innermost heading in the chain, if any.
+   */
+  private void deliver(Section section, List<ParseResult.Error> lexerErrors,
+      Deque<Context> headings, Consumer<? super GraphContext> contextConsumer,
+      SyntaxErrorListener errorListener) {
+    // the lexer runs ahead of the parser, so it reports an error at the same position first
+    int l = 0;
+    int p = 0;
+    while (l < lexerErrors.size() || p < section.errors.size()) {
+      final ParseResult.Error error;
+      if (p == section.errors.size() || l < lexerErrors.size()
+          && !isBefore(section.errors.get(p), lexerErrors.get(l).getLine(),
+              lexerErrors.get(l).getCharPositionInLine())) {
+        error = lexerErrors.get(l++);
+      } else {
+        error = section.errors.get(p++);
+      }
+      errorListener.syntaxError(null, null, error.getLine(), error.getCharPositionInLine(),
+          error.getMessage(), null);
+    }
+    for (final GraphContext event : section.events) {
+      if (event instanceof Context) {
+        final Context context = (Context) event;
+        headings.removeIf(c -> context.getLevel() <= c.getLevel());
+      }
+      if (event.getParent() == null && event instanceof MutableGraphContext) {
+        ((MutableGraphContext) event).setParent(headings.peekLast());
+      }
+      if (event instanceof Context) {
+        headings.add((Context) event);
+      }
+      if (eventFilter == EventFilter.ALL || eventFilter.accepts(event)) {
+        contextConsumer.accept(event);
+      }
+    }
+  }
+
+  private Section parseSection(List<Token> tokens, Path importPath, EventFilter sectionFilter) {
+    final Section section = new Section();
+    final ANTLRErrorListener errorListener = collectErrors(section.errors);
+    try (ParserPool.Lease lease = pool.acquire()) {
+      final MarkdownParser parser = lease.getParser();
+      parser.setInputStream(new CommonTokenStream(new ListTokenSource(tokens)));
+      parser.addErrorListener(errorListener);
+      final DocumentContext documentContext = parseDocument(parser, errorListener);
+      try (MarkdownEventSource listener = new MarkdownEventSource(section.events::add,
+          importPath, sectionFilter, contextFactory, importCache)) {
+        if (prefetchImports) {
+          listener.prefetchImports(documentContext, executor);
+        }
+        ParseTreeWalker.DEFAULT.walk(listener, documentContext);
+      }
+    }
+    return section;
+  }
+
+  /**
+   * Lexes a document, then parses its sections concurrently
+   *
+   * The calling thread parses sections too, so progress does not depend on the availability of
+   * executor threads.
+   */
+  private void parseSections(CharStream charStream,
+      Consumer<? super GraphContext> contextConsumer, SyntaxErrorListener errorListener,
+      Path importPath) {
+    final List<Token> tokens;
+    // held until they are delivered with the section in which they occur
+    final List<ParseResult.Error> lexerErrors = new ArrayList<>();
+    try (ParserPool.Lease lease = pool.acquire()) {
+      final CommonTokenStream tokenStream = (CommonTokenStream) newTokenStream(
+          attach(lease, charStream, collectErrors(lexerErrors)));
+      tokenStream.fill();
+      tokens = tokenStream.getTokens();
+    }
+
+    final List<Integer> starts = sectionStarts(tokens, MIN_SECTION_TOKENS);
+    final int sectionCount = starts.size();
+    final List<CompletableFuture<Section>> sections = new ArrayList<>(sectionCount);
+    for (int i = 0; i < sectionCount; i++) {
+      sections.add(new CompletableFuture<>());
+    }
+    final AtomicInteger nextSection = new AtomicInteger();
+    final Runnable worker = () -> {
+      int i;
+      while ((i = nextSection.getAndIncrement()) < sectionCount) {
+        final int end = i + 1 < sectionCount ? starts.get(i + 1) : tokens.size();
+        try {
+          sections.get(i).complete(parseSection(tokens.subList(starts.get(i), end), importPath,
+              tableFilter));
+        } catch (final RuntimeException e) {
+          sections.get(i).completeExceptionally(e);
+        }
+      }
+    };
+    final int workers =
+        Math.min(sectionCount, Runtime.getRuntime().availableProcessors()) - 1;
+    try {
+      for (int i = 0; i < workers; i++) {
+        executor.execute(worker);
+      }
+    } catch (final RejectedExecutionException e) {
+      // remaining sections are parsed by the calling thread
+    }
+    worker.run();
+
+    final Deque<Context> headings = new ArrayDeque<>();
+    int lexerError = 0;
+    int i = 0;
+    while (i < sectionCount) {
+      Section section = result(sections.get(i));
+      int end = i + 1;
+      // recovery from an error may leave tokens that a sequential parse would assign to the next
+      // section, so a section with errors in its last part is parsed again with its successors
+      while (end < sectionCount
+          && hasErrorsFrom(section, tokens.get(starts.get(end - 1)).getLine())) {
+        do {
+          end++;
+        } while (end < sectionCount && !result(sections.get(end - 1)).errors.isEmpty());
+        final int to = end < sectionCount ? starts.get(end) : tokens.size();
+        section = parseSection(tokens.subList(starts.get(i), to), importPath, tableFilter);
+      }
+      int lexerEnd = lexerError;
+      if (end < sectionCount) {
+        final Token next = tokens.get(starts.get(end));
+        while (lexerEnd < lexerErrors.size() && isBefore(lexerErrors.get(lexerEnd),
+            next.getLine(), next.getCharPositionInLine())) {
+          lexerEnd++;
+        }
+      } else {
+        lexerEnd = lexerErrors.size();
+      }
+      deliver(section, lexerErrors.subList(lexerError, lexerEnd), headings, contextConsumer,
+          errorListener);
+      lexerError = lexerEnd;
+      i = end;
+    }
+  }
+
+  private static ANTLRErrorListener collectErrors(List<ParseResult.Error> errors) {
+    return new BaseErrorListener() {
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+          int charPositionInLine, String msg, RecognitionException e) {
+        errors.add(new ParseResult.Error(line, charPositionInLine, msg));
+      }
+    };
+  }
+
+  private static boolean hasErrorsFrom(Section section, int line) {
+    for (final ParseResult.Error error : section.errors) {
+      if (error.getLine() >= line) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isBefore(ParseResult.Error error, int line, int charPositionInLine) {
+    return error.getLine() < line
+        || error.getLine() == line && error.getCharPositionInLine() < charPositionInLine;
+  }
+
+  private static Section result(CompletableFuture<Section> section) {
+    try {
+      return section.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static int countLines(String text, int begin, int end) {
+    int lines = 0;
+    for (int i = begin; i < end; i++) {
+      if (text.charAt(i) == '\n') {
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Restores parents of contexts that are outside of their segments
+   *
+   * @param segments all segments of a document
+   * @param fromReparsed index of the first re-parsed segment
+   * @param toReparsed index after the last re-parsed segment
+   * @return retained contexts whose parent changed
+   */
+  private static List<GraphContext> stitch(List<ParsedDocument.Segment> segments,
+      int fromReparsed, int toReparsed) {
+    final List<GraphContext> changed = new ArrayList<>();
+    final Deque<Context> headings = new ArrayDeque<>();
+    for (int s = 0; s < segments.size(); s++) {
+      final ParsedDocument.Segment segment = segments.get(s);
+      final boolean retained = s < fromReparsed || s >= toReparsed;
+      for (int i = 0; i < segment.events.size(); i++) {
+        final GraphContext event = segment.events.get(i);
+        if (event instanceof Context) {
+          final Context context = (Context) event;
+          headings.removeIf(c -> context.getLevel() <= c.getLevel());
+        }
+        if (segment.external[i] && event instanceof MutableGraphContext) {
+          final Context parent = headings.peekLast();
+          if (event.getParent() != parent) {
+            if (retained) {
+              changed.add(event);
+            }
+            ((MutableGraphContext) event).setParent(parent);
+          }
+        }
+        if (event instanceof Context) {
+          headings.add((Context) event);
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Lexes a document from the start of a segment and parses the resulting segments
+   *
+   * Lexing stops at a segment boundary that matches a previous segment, since the remainder of the
+   * document lexes the same as before.
+   *
+   * @param input document
+   * @param startOffset offset of the first segment
+   * @param startLine line number of the first segment
+   * @param resyncFrom offset from which previous segments may be matched
+   * @param resyncOffsets indexes of previous segments keyed by offset
+   * @param importPath base directory for file imports (if any)
+   * @param segments receives new segments
+   * @return index of the matching previous segment, or -1 if lexing reached the end of the document
+   */
+  private int lexSegments(CharStream input, int startOffset, int startLine, int resyncFrom,
+      Map<Integer, Integer> resyncOffsets, Path importPath,
+      List<ParsedDocument.Segment> segments) {
+    final List<ParseResult.Error> lexerErrors = new ArrayList<>();
+    final List<Token> tokens = new ArrayList<>();
+    final List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    int resync = -1;
+    try (ParserPool.Lease lease = pool.acquire()) {
+      input.seek(startOffset);
+      final TokenSource tokenSource = attach(lease, input, new BaseErrorListener() {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+            int charPositionInLine, String msg, RecognitionException e) {
+          lexerErrors.add(new ParseResult.Error(line + startLine - 1, charPositionInLine, msg));
+        }
+      });
+      Token token;
+      do {
+        token = tokenSource.nextToken();
+        // a lexer that starts within a document counts lines from one
+        ((WritableToken) token).setLine(token.getLine() + startLine - 1);
+        tokens.add(token);
+        if (token.getType() == MarkdownLexer.HEADINGLINE) {
+          final int start = splitBefore(tokens, tokens.size() - 1);
+          if (start != -1) {
+            final int offset = tokens.get(start).getStartIndex();
+            final Integer previous = offset >= resyncFrom ? resyncOffsets.get(offset) : null;
+            if (previous != null) {
+              resync = previous;
+              tokens.subList(start, tokens.size()).clear();
+              break;
+            }
+            starts.add(start);
+          }
+        }
+      } while (token.getType() != Token.EOF);
+    }
+
+    int errorIndex = 0;
+    for (int i = 0; i < starts.size(); i++) {
+      final int from = starts.get(i);
+      final int to = i + 1 < starts.size() ? starts.get(i + 1) : tokens.size();
+      final Token first = tokens.get(from);
+      final Section section = parseSection(tokens.subList(from, to), importPath, EventFilter.ALL);
+      final List<ParseResult.Error> errors = new ArrayList<>();
+      final int nextLine = to < tokens.size() ? tokens.get(to).getLine() : Integer.MAX_VALUE;
+      while (errorIndex < lexerErrors.size() && lexerErrors.get(errorIndex).getLine() < nextLine) {
+        errors.add(lexerErrors.get(errorIndex++));
+      }
+      final boolean unclosed = !errors.isEmpty() || hasUnmatchedBacktick(tokens, from, to);
+      errors.addAll(section.errors);
+      segments.add(new ParsedDocument.Segment(first.getStartIndex(), first.getLine(),
+          section.events, errors, unclosed));
+    }
+    return resync;
+  }
+
+  /**
+   * Tests whether tokens outside of fenced code blocks contain a backtick that does not close a
+   * literal within the same token. Escaped backticks are counted too.
+   */
+  private static boolean hasUnmatchedBacktick(List<Token> tokens, int from, int to) {
+    boolean fenced = false;
+    for (int t = from; t < to; t++) {
+      final Token token = tokens.get(t);
+      if (token.getType() == MarkdownLexer.OPEN_FENCE) {
+        fenced = true;
+      } else if (token.getType() == MarkdownLexer.CLOSE_FENCE) {
+        fenced = false;
+      } else if (!fenced) {
+        final String text = token.getText();
+        int backticks = 0;
+        for (int i = text.indexOf('`'); i != -1; i = text.indexOf('`', i + 1)) {
+          backticks++;
+        }
+        if (backticks % 2 != 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static List<ParseResult> join(List<CompletableFuture<ParseResult>> futures) {
+    final List<ParseResult> results = new ArrayList<>(futures.size());
+    for (final CompletableFuture<ParseResult> future : futures) {
+      results.add(future.join());
+    }
+    return results;
+  }
+
+  /**
+   * Runs a parse, collecting its errors and any exception that stops it
+   */
+  private static ParseResult parseResult(String source, ListenedParse parse) {
+    final List<ParseResult.Error> errors = new ArrayList<>();
+    try {
+      parse.parse((line, charPositionInLine, msg) -> errors
+          .add(new ParseResult.Error(line, charPositionInLine, msg)));
+      return new ParseResult(source, errors, null);
+    } catch (final IOException | RuntimeException e) {
+      return new ParseResult(source, errors, e);
+    }
+  }
+
+  /**
+   * Attaches input and error listener to the pooled lexer of the selected kind
+   */
+  private TokenSource attach(ParserPool.Lease lease, CharStream charStream,
+      ANTLRErrorListener errorListener) {
+    if (lexerBackend == LexerBackend.HAND_CODED) {
+      final MarkdownTokenSource scanner = lease.getTokenSource();
+      scanner.setInputStream(charStream);
+      scanner.addErrorListener(errorListener);
+      return scanner;
+    } else {
+      final Lexer lexer = lease.getLexer(lexerBackend);
+      lexer.setInputStream(charStream);
+      lexer.addErrorListener(errorListener);
+      return lexer;
+    }
+  }
+
+  /**
+   * Attaches input and error listener to pooled recognizers
+   */
+  private MarkdownParser prepare(ParserPool.Lease lease, CharStream charStream,
+      SyntaxErrorListener errorListener) {
+    final TokenSource tokenSource = attach(lease, charStream, errorListener);
+    final MarkdownParser parser = lease.getParser();
+    parser.setInputStream(newTokenStream(tokenSource));
+    parser.addErrorListener(errorListener);
+    return parser;
+  }
+
+  /**
+   * Parses a document, trying SLL prediction first if two-stage prediction is selected
+   *
+   * Syntax errors are not reported by the first stage since they cause the parse to be repeated
+   * with full LL prediction and error recovery. Lexer errors are reported once since tokens are
+   * buffered and not lexed again.
+   */
+  private DocumentContext parseDocument(MarkdownParser parser, ANTLRErrorListener errorListener) {
+    if (!twoStage) {
+      return parser.document();
+    }
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    parser.removeErrorListeners();
+    parser.setErrorHandler(new BailErrorStrategy());
+    try {
+      return parser.document();
+    } catch (final ParseCancellationException e) {
+      parser.reset();
+      parser.addErrorListener(errorListener);
+      parser.setErrorHandler(new DefaultErrorStrategy());
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return parser.document();
+    }
+  }
+
+  private TokenStream newTokenStream(TokenSource tokenSource) {
+    if (unbuffered) {
+      // token text must be copied since the character window slides past it
+      tokenSource.setTokenFactory(COPY_TEXT_FACTORY);
+      return new UnbufferedTokenStream<>(tokenSource, unbufferedSize);
+    } else {
+      return new CommonTokenStream(tokenSource);
+    }
+  }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Publishes document events of a parse to a subscriber as they are demanded
+ *
+ * Each subscription runs its own parse as a task of an executor. The task waits whenever the
+ * subscriber has not requested more events, so events are never buffered. The wait is managed so
+ * that a {@link ForkJoinPool} may compensate for a blocked worker.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class DocumentPublisher implements Flow.Publisher<GraphContext> {
+
+  /**
+   * A parse that delivers document events to a consumer
+   */
+  @FunctionalInterface
+  interface Parse {
+    void parse(Consumer<? super GraphContext> contextConsumer) throws IOException;
+  }
+
+  private final class DocumentSubscription
+      implements Flow.Subscription, Consumer<GraphContext>, ForkJoinPool.ManagedBlocker {
+    private boolean cancelled = false;
+    private long demand = 0;
+    private IllegalArgumentException invalidRequest;
+    private final Flow.Subscriber<? super GraphContext> subscriber;
+
+    DocumentSubscription(Flow.Subscriber<? super GraphContext> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void accept(GraphContext context) {
+      try {
+        ForkJoinPool.managedBlock(this);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel();
+      }
+      synchronized (this) {
+        if (cancelled || invalidRequest != null) {
+          throw new CancellationException();
+        }
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+      }
+      try {
+        subscriber.onNext(context);
+      } catch (final RuntimeException e) {
+        // a subscriber that throws is considered to have cancelled
+        cancel();
+        throw new CancellationException();
+      }
+    }
+
+    @Override
+    public synchronized boolean block() throws InterruptedException {
+      while (!isReleasable()) {
+        wait();
+      }
+      return true;
+    }
+
+    @Override
+    public synchronized void cancel() {
+      cancelled = true;
+      notifyAll();
+    }
+
+    @Override
+    public synchronized boolean isReleasable() {
+      return demand > 0 || cancelled || invalidRequest != null;
+    }
+
+    @Override
+    public synchronized void request(long n) {
+      if (n <= 0) {
+        if (invalidRequest == null) {
+          invalidRequest =
+              new IllegalArgumentException("Subscriber requested non-positive number of events");
+        }
+      } else {
+        demand += n;
+        if (demand < 0) {
+          demand = Long.MAX_VALUE;
+        }
+      }
+      notifyAll();
+    }
+
+    void run() {
+      try {
+        parse.parse(this);
+        final IllegalArgumentException error = getInvalidRequest();
+        if (error != null) {
+          subscriber.onError(error);
+        } else if (!isCancelled()) {
+          subscriber.onComplete();
+        }
+      } catch (final CancellationException e) {
+        final IllegalArgumentException error = getInvalidRequest();
+        if (error != null) {
+          subscriber.onError(error);
+        }
+      } catch (final IOException | RuntimeException e) {
+        if (!isCancelled()) {
+          subscriber.onError(e);
+        }
+      }
+    }
+
+    private synchronized IllegalArgumentException getInvalidRequest() {
+      return cancelled ? null : invalidRequest;
+    }
+
+    private synchronized boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  private static final Flow.Subscription NO_SUBSCRIPTION = new Flow.Subscription() {
+    @Override
+    public void cancel() {
+      // nothing to cancel
+    }
+
+    @Override
+    public void request(long n) {
+      // nothing to deliver
+    }
+  };
+
+  private final Executor executor;
+  private final Parse parse;
+  private final boolean repeatable;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * Constructor
+   *
+   * @param parse parse to run for each subscription
+   * @param repeatable {@code true} if the parse may be run more than once, as when it reads a
+   *        file. If {@code false}, only one subscriber is accepted.
+   * @param executor runs parses
+   */
+  DocumentPublisher(Parse parse, boolean repeatable, Executor executor) {
+    this.parse = parse;
+    this.repeatable = repeatable;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super GraphContext> subscriber) {
+    Objects.requireNonNull(subscriber, "Missing subscriber");
+    if (!repeatable && subscribed.getAndSet(true)) {
+      subscriber.onSubscribe(NO_SUBSCRIPTION);
+      subscriber.onError(new IllegalStateException("Document was already published"));
+      return;
+    }
+    final DocumentSubscription subscription = new DocumentSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    try {
+      executor.execute(subscription::run);
+    } catch (final RejectedExecutionException e) {
+      subscriber.onError(e);
+    }
+  }
+}
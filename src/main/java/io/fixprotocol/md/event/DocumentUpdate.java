@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.List;
+
+/**
+ * Result of an incremental re-parse of a document
+ *
+ * Contexts of re-parsed segments are replaced, so they are reported as removed and added even if
+ * their contents are unchanged. Retained contexts that moved within the document are not reported
+ * unless their parent changed.
+ *
+ * @author Don Mendelson
+ * @see DocumentParser#reparse(ParsedDocument, int, int, String)
+ */
+public final class DocumentUpdate {
+
+  private final List<GraphContext> added;
+  private final List<GraphContext> changed;
+  private final ParsedDocument document;
+  private final List<GraphContext> removed;
+
+  DocumentUpdate(ParsedDocument document, List<GraphContext> added, List<GraphContext> removed,
+      List<GraphContext> changed) {
+    this.document = document;
+    this.added = List.copyOf(added);
+    this.removed = List.copyOf(removed);
+    this.changed = List.copyOf(changed);
+  }
+
+  /**
+   * @return contexts produced by re-parsing, in document order
+   */
+  public List<GraphContext> getAdded() {
+    return added;
+  }
+
+  /**
+   * @return retained contexts whose parent changed, in document order
+   */
+  public List<GraphContext> getChanged() {
+    return changed;
+  }
+
+  /**
+   * @return the updated document
+   */
+  public ParsedDocument getDocument() {
+    return document;
+  }
+
+  /**
+   * @return contexts that were replaced by re-parsing, in their former document order
+   */
+  public List<GraphContext> getRemoved() {
+    return removed;
+  }
+}
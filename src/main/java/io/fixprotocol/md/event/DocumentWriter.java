@@ -118,16 +118,16 @@ public class DocumentWriter implements AutoCloseable {
   }
 
   public void write(Documentation documentation) throws IOException {
-    final String text = documentation.getDocumentation();
+    final CharSequence text = documentation.getDocumentationText();
     final String format = documentation.getFormat();
     if (text != null) {
       if (format.equals(Documentation.MARKDOWN)) {
-        writer.write(text);
+        writeText(text);
       } else {
         writer.write(FENCE);
         writer.write(format);
         writer.write("\n");
-        writer.write(text);
+        writeText(text);
         writer.write(FENCE);
       }
       writer.write("\n\n");
@@ -216,4 +216,12 @@ public class DocumentWriter implements AutoCloseable {
     }
     writer.write("|\n");
   }
+
+  private void writeText(CharSequence text) throws IOException {
+    if (text instanceof JoinedText) {
+      ((JoinedText) text).appendTo(writer);
+    } else {
+      writer.append(text);
+    }
+  }
 }
@@ -34,6 +34,20 @@ public interface Documentation extends GraphContext, DocumentContext {
    */
   String getDocumentation();
 
+  /**
+   * Return the contents without necessarily building a String
+   *
+   * Prose may be a view of the source document that is joined only when it is read. A consumer
+   * that forwards text, such as {@link DocumentWriter}, can avoid copying it. Until its text is
+   * read, an event retains the input of the parse, so a consumer that holds events for a long time
+   * should read them to release the input.
+   *
+   * @return documentation
+   */
+  default CharSequence getDocumentationText() {
+    return getDocumentation();
+  }
+
   /**
    * Returns the format of the documentation. This corresponds to infostring of a fenced code block,
    * as defined by the markdown specification. Originally, it was the name of a programming language
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Collects document events into batches for a consumer of lists
+ *
+ * A batch is delivered when it reaches its maximum size, before a heading that starts a section,
+ * and when {@link #flush()} is invoked at the end of a document. The list passed to the batch
+ * consumer is a view of a buffer that is reused for the next batch, so a consumer that retains
+ * events must copy them.
+ *
+ * An EventBatcher is not safe for use by multiple threads.
+ *
+ * @author Don Mendelson
+ * @see DocumentParser#parseBatched(java.io.InputStream, Consumer, int, int,
+ *      DocumentParser.ParserErrorListener, java.nio.file.Path)
+ */
+public final class EventBatcher implements Consumer<GraphContext> {
+
+  /**
+   * Value of section level that disables delivery of batches by section
+   */
+  public static final int NO_SECTIONS = 0;
+
+  private final Consumer<? super List<GraphContext>> batchConsumer;
+  private final int batchSize;
+  private final List<GraphContext> buffer;
+  private final int sectionLevel;
+  private final List<GraphContext> view;
+
+  /**
+   * Constructor
+   *
+   * @param batchConsumer consumer of batches of events
+   * @param batchSize maximum number of events in a batch
+   * @param sectionLevel a heading at this level or lower, such as 2 for {@code ##}, starts a new
+   *        batch. If {@link #NO_SECTIONS}, batches are delivered by size only.
+   * @throws IllegalArgumentException if batch size is not positive or section level is negative
+   */
+  public EventBatcher(Consumer<? super List<GraphContext>> batchConsumer, int batchSize,
+      int sectionLevel) {
+    this.batchConsumer = Objects.requireNonNull(batchConsumer, "Missing batchConsumer");
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    if (sectionLevel < 0) {
+      throw new IllegalArgumentException("Section level must not be negative");
+    }
+    this.batchSize = batchSize;
+    this.sectionLevel = sectionLevel;
+    this.buffer = new ArrayList<>(batchSize);
+    this.view = Collections.unmodifiableList(buffer);
+  }
+
+  @Override
+  public void accept(GraphContext graphContext) {
+    if (sectionLevel != NO_SECTIONS && graphContext instanceof Context
+        && ((Context) graphContext).getLevel() <= sectionLevel) {
+      flush();
+    }
+    buffer.add(graphContext);
+    if (buffer.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Delivers collected events, if any
+   */
+  public void flush() {
+    if (!buffer.isEmpty()) {
+      try {
+        batchConsumer.accept(view);
+      } finally {
+        buffer.clear();
+      }
+    }
+  }
+}
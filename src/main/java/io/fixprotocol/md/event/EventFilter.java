@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Selects the document events that a consumer is interested in
+ *
+ * A filter is consulted before an event is built, so events that are not wanted cost only the
+ * parse of their markdown. Headings are always tracked to supply parents of other events, but they
+ * are only delivered if accepted.
+ *
+ * An event type is one of the interfaces {@link Context} for a heading, {@link Documentation},
+ * {@link DetailTable} or {@link Detail} for a table row.
+ *
+ * @author Don Mendelson
+ * @see DocumentParser.Builder#eventFilter(EventFilter)
+ */
+@FunctionalInterface
+public interface EventFilter {
+
+  /**
+   * Accepts all events
+   */
+  EventFilter ALL = (type, heading) -> true;
+
+  /**
+   * Accepts events of the specified types
+   *
+   * @param types event types. A type matches an event if the event type is the same or a subtype,
+   *        so {@code GraphContext.class} matches all events.
+   * @return a filter
+   */
+  @SafeVarargs
+  static EventFilter types(Class<? extends GraphContext>... types) {
+    final List<Class<? extends GraphContext>> typeList = List.of(types);
+    return (type, heading) -> {
+      for (final Class<? extends GraphContext> t : typeList) {
+        if (t.isAssignableFrom(type)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  /**
+   * Accepts events under a heading that satisfies a predicate, including the heading itself
+   *
+   * @param predicate tested against the heading of an event and its ancestors, nearest first
+   * @return a filter
+   */
+  static EventFilter under(Predicate<? super Context> predicate) {
+    Objects.requireNonNull(predicate, "Missing predicate");
+    return (type, heading) -> {
+      for (Context c = heading; c != null; c = c.getParent()) {
+        if (predicate.test(c)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  /**
+   * Tests whether an event is wanted before it is built
+   *
+   * @param type type of event
+   * @param heading heading of the event, that is the event itself if it is a heading, otherwise its
+   *        parent. May be {@code null} for an event that precedes all headings.
+   * @return {@code true} if the event should be built and delivered
+   */
+  boolean accepts(Class<? extends GraphContext> type, Context heading);
+
+  /**
+   * Tests whether an event that was already built is wanted
+   *
+   * @param event a document event
+   * @return {@code true} if the event should be delivered
+   */
+  default boolean accepts(GraphContext event) {
+    if (event instanceof Context) {
+      return accepts(Context.class, (Context) event);
+    } else if (event instanceof Documentation) {
+      return accepts(Documentation.class, event.getParent());
+    } else if (event instanceof DetailTable) {
+      return accepts(DetailTable.class, event.getParent());
+    } else if (event instanceof Detail) {
+      return accepts(Detail.class, event.getParent());
+    } else {
+      return accepts(event.getClass(), event.getParent());
+    }
+  }
+
+  /**
+   * Combines this filter with another
+   *
+   * @param other another filter
+   * @return a filter that accepts events accepted by both filters
+   */
+  default EventFilter and(EventFilter other) {
+    Objects.requireNonNull(other, "Missing other");
+    return (type, heading) -> accepts(type, heading) && other.accepts(type, heading);
+  }
+}
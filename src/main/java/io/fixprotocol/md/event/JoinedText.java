@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Text that is joined from parts only when it is needed
+ *
+ * Parts may themselves be views of source text, such as tokens. They are appended in turn by
+ * {@link #appendTo(Appendable)} without building the joined text. Any other access builds the
+ * joined String once and releases the parts.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class JoinedText implements CharSequence {
+
+  private final CharSequence delimiter;
+  private List<? extends CharSequence> parts;
+  private String text;
+
+  /**
+   * Constructor
+   *
+   * @param parts text to join. The list is retained, so it must not be modified afterward.
+   * @param delimiter separates parts
+   */
+  public JoinedText(List<? extends CharSequence> parts, CharSequence delimiter) {
+    this.parts = parts;
+    this.delimiter = delimiter;
+  }
+
+  /**
+   * Appends the joined text without building it, unless it has already been built
+   *
+   * @param appendable destination of text
+   * @throws IOException if the text cannot be appended
+   */
+  public synchronized void appendTo(Appendable appendable) throws IOException {
+    if (text != null) {
+      appendable.append(text);
+      return;
+    }
+    for (int i = 0; i < parts.size(); i++) {
+      if (i > 0) {
+        appendable.append(delimiter);
+      }
+      final CharSequence part = parts.get(i);
+      if (part instanceof JoinedText) {
+        ((JoinedText) part).appendTo(appendable);
+      } else {
+        appendable.append(part);
+      }
+    }
+  }
+
+  @Override
+  public char charAt(int index) {
+    return toString().charAt(index);
+  }
+
+  @Override
+  public int length() {
+    return toString().length();
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  public synchronized String toString() {
+    if (text == null) {
+      final StringBuilder sb = new StringBuilder();
+      try {
+        appendTo(sb);
+      } catch (final IOException e) {
+        // StringBuilder does not throw
+      }
+      text = sb.toString();
+      parts = null;
+    }
+    return text;
+  }
+}
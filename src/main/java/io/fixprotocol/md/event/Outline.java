@@ -0,0 +1,332 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * An index of the headings of a document
+ *
+ * Each heading starts a section that extends to the next heading at the same or a higher level.
+ * Sections are found by their path of heading titles from the top level, by level, or by a
+ * position in the document. A title is the keys of a heading separated by single spaces.
+ *
+ * An outline is built from document events in the same pass that delivers them to a consumer.
+ * <pre>
+ * Outline.Builder builder = new Outline.Builder(consumer);
+ * parser.parse(inputStream, builder);
+ * Outline outline = builder.build();
+ * Outline.Section section = outline.section("Message NewOrderSingle type 'D'");
+ * </pre>
+ * An Outline is immutable once built.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class Outline {
+
+  /**
+   * Collects an outline from document events and forwards them to another consumer
+   *
+   * A Builder is not safe for use by multiple threads.
+   */
+  public static final class Builder implements Consumer<GraphContext> {
+
+    private final Consumer<? super GraphContext> downstream;
+    private int maxEndOffset = DocumentContext.UNKNOWN_POSITION;
+    private final Deque<Section> open = new ArrayDeque<>();
+    private final List<GraphContext> preamble = new ArrayList<>();
+    private final Map<Context, Section> sectionsByHeading = new IdentityHashMap<>();
+    private final List<Section> sections = new ArrayList<>();
+
+    /**
+     * Constructs a Builder that only collects an outline
+     */
+    public Builder() {
+      this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param downstream consumer of document events after they are indexed. May be {@code null}.
+     */
+    public Builder(Consumer<? super GraphContext> downstream) {
+      this.downstream = downstream;
+    }
+
+    @Override
+    public void accept(GraphContext graphContext) {
+      if (graphContext instanceof DocumentContext) {
+        maxEndOffset = Math.max(maxEndOffset, ((DocumentContext) graphContext).getEndOffset());
+      }
+      if (graphContext instanceof Context) {
+        final Context heading = (Context) graphContext;
+        while (!open.isEmpty() && open.peekLast().getLevel() >= heading.getLevel()) {
+          open.removeLast().close(heading.getStartOffset());
+        }
+        final Section parent = sectionOf(heading.getParent());
+        final Section section = new Section(heading, parent);
+        sectionsByHeading.put(heading, section);
+        sections.add(section);
+        open.addLast(section);
+        if (parent != null) {
+          parent.events.add(heading);
+          parent.children.add(section);
+        }
+      } else {
+        final Section section = sectionOf(graphContext.getParent());
+        if (section != null) {
+          section.events.add(graphContext);
+        } else {
+          preamble.add(graphContext);
+        }
+      }
+      if (downstream != null) {
+        downstream.accept(graphContext);
+      }
+    }
+
+    /**
+     * Completes an outline at the end of a document
+     *
+     * Sections that are still open end at the last known position of the document.
+     *
+     * @return an outline of events received
+     */
+    public Outline build() {
+      while (!open.isEmpty()) {
+        open.removeLast().endOffset = maxEndOffset;
+      }
+      return new Outline(sections, preamble);
+    }
+
+    private Section sectionOf(Context heading) {
+      return heading != null ? sectionsByHeading.get(heading) : null;
+    }
+  }
+
+  /**
+   * A heading and the events that follow it up to the next heading at the same or a higher level
+   */
+  public static final class Section {
+    private final List<Section> children = new ArrayList<>();
+    private int endOffset = DocumentContext.UNKNOWN_POSITION;
+    private final List<GraphContext> events = new ArrayList<>();
+    private final Context heading;
+    private final Section parent;
+    private final List<String> path;
+
+    private Section(Context heading, Section parent) {
+      this.heading = heading;
+      this.parent = parent;
+      final String title = String.join(" ", heading.getKeys());
+      if (parent != null) {
+        final List<String> parentPath = parent.path;
+        final String[] titles = parentPath.toArray(new String[parentPath.size() + 1]);
+        titles[parentPath.size()] = title;
+        this.path = List.of(titles);
+      } else {
+        this.path = List.of(title);
+      }
+    }
+
+    /**
+     * @return sections of subheadings in document order
+     */
+    public List<Section> getChildren() {
+      return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * @return offset of the last character of this section, or
+     *         {@link DocumentContext#UNKNOWN_POSITION} if not known
+     */
+    public int getEndOffset() {
+      return endOffset;
+    }
+
+    /**
+     * @return events whose parent is the heading of this section, including subheadings, in
+     *         document order
+     */
+    public List<GraphContext> getEvents() {
+      return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * @return the heading that starts this section
+     */
+    public Context getHeading() {
+      return heading;
+    }
+
+    /**
+     * @return outline level of the heading
+     */
+    public int getLevel() {
+      return heading.getLevel();
+    }
+
+    /**
+     * @return the section of the parent heading, or {@code null} for a top level section
+     */
+    public Section getParent() {
+      return parent;
+    }
+
+    /**
+     * @return titles of headings from the top level to this section
+     */
+    public List<String> getPath() {
+      return path;
+    }
+
+    /**
+     * @return offset of the heading, or {@link DocumentContext#UNKNOWN_POSITION} if not known
+     */
+    public int getStartOffset() {
+      return heading.getStartOffset();
+    }
+
+    @Override
+    public String toString() {
+      return "Section [path=" + path + ", start=" + getStartOffset() + ", end=" + endOffset + "]";
+    }
+
+    private void close(int nextHeadingOffset) {
+      if (nextHeadingOffset != DocumentContext.UNKNOWN_POSITION) {
+        endOffset = nextHeadingOffset - 1;
+      }
+    }
+  }
+
+  private final Map<Integer, List<Section>> byLevel = new HashMap<>();
+  private final Map<List<String>, Section> byPath = new HashMap<>();
+  private final List<GraphContext> preamble;
+  private final List<Section> roots = new ArrayList<>();
+  private final List<Section> sections;
+
+  private Outline(List<Section> sections, List<GraphContext> preamble) {
+    this.sections = List.copyOf(sections);
+    this.preamble = List.copyOf(preamble);
+    for (final Section section : sections) {
+      // the first of sections with the same path is found
+      byPath.putIfAbsent(section.path, section);
+      byLevel.computeIfAbsent(section.getLevel(), l -> new ArrayList<>()).add(section);
+      if (section.parent == null) {
+        roots.add(section);
+      }
+    }
+  }
+
+  /**
+   * @return events that precede the first heading or have no heading
+   */
+  public List<GraphContext> getPreamble() {
+    return preamble;
+  }
+
+  /**
+   * @return top level sections in document order
+   */
+  public List<Section> getRoots() {
+    return Collections.unmodifiableList(roots);
+  }
+
+  /**
+   * @return all sections in document order
+   */
+  public List<Section> getSections() {
+    return sections;
+  }
+
+  /**
+   * Finds a section by its path of heading titles
+   *
+   * @param path titles of headings from the top level, each the keys of a heading separated by
+   *        spaces
+   * @return the first section with the path, or {@code null} if not found
+   */
+  public Section section(List<String> path) {
+    return byPath.get(Objects.requireNonNull(path, "Missing path"));
+  }
+
+  /**
+   * Finds a section by its path of heading titles
+   *
+   * @param path titles of headings from the top level
+   * @return the first section with the path, or {@code null} if not found
+   * @see #section(List)
+   */
+  public Section section(String... path) {
+    return section(List.of(path));
+  }
+
+  /**
+   * Finds the innermost section that contains a position
+   *
+   * @param offset a position in the document
+   * @return a section, or {@code null} if the position precedes the first heading or positions
+   *         are not known
+   */
+  public Section sectionAt(int offset) {
+    // last section that starts at or before the offset
+    int low = 0;
+    int high = sections.size() - 1;
+    int found = -1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (sections.get(mid).getStartOffset() <= offset) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (found == -1) {
+      return null;
+    }
+    Section section = sections.get(found);
+    while (section != null && section.getStartOffset() == DocumentContext.UNKNOWN_POSITION) {
+      section = section.parent;
+    }
+    while (section != null && section.endOffset != DocumentContext.UNKNOWN_POSITION
+        && section.endOffset < offset) {
+      section = section.parent;
+    }
+    return section;
+  }
+
+  /**
+   * Finds sections at an outline level
+   *
+   * @param level outline level, 1-based
+   * @return sections in document order
+   */
+  public List<Section> sections(int level) {
+    final List<Section> found = byLevel.get(level);
+    return found != null ? Collections.unmodifiableList(found) : List.of();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.util.List;
+
+/**
+ * Outcome of parsing one of several documents
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class ParseResult {
+
+  /**
+   * A syntax error reported while parsing a document
+   */
+  public static final class Error {
+    private final int charPositionInLine;
+    private final int line;
+    private final String msg;
+
+    Error(int line, int charPositionInLine, String msg) {
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+      this.msg = msg;
+    }
+
+    public int getCharPositionInLine() {
+      return charPositionInLine;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return msg;
+    }
+
+    @Override
+    public String toString() {
+      return "Error [line=" + line + ", charPositionInLine=" + charPositionInLine + ", msg=" + msg
+          + "]";
+    }
+  }
+
+  private final List<Error> errors;
+  private final Exception exception;
+  private final String source;
+
+  ParseResult(String source, List<Error> errors, Exception exception) {
+    this.source = source;
+    this.errors = List.copyOf(errors);
+    this.exception = exception;
+  }
+
+  /**
+   * @return syntax errors in the order reported. Empty if there were none.
+   */
+  public List<Error> getErrors() {
+    return errors;
+  }
+
+  /**
+   * @return exception that stopped parsing, such as a failure to read the document, or
+   *         {@code null} if parsing completed
+   */
+  public Exception getException() {
+    return exception;
+  }
+
+  /**
+   * @return name of the document, such as its file path
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return {@code true} if the document was fully parsed without errors
+   */
+  public boolean isSuccessful() {
+    return exception == null && errors.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "ParseResult [source=" + source + ", errors=" + errors + ", exception=" + exception
+        + "]";
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A parsed Markdown document that can be updated incrementally
+ *
+ * The document is divided into segments that each start with a heading, except the first. An
+ * edit re-parses only the segments that it affects. Contexts of other segments are retained.
+ *
+ * A ParsedDocument is superseded when it is updated. Retained contexts are shared with the
+ * updated document, and their offsets, line numbers and parents are changed in place.
+ *
+ * @author Don Mendelson
+ * @see DocumentParser#parseIncremental(String, Path)
+ * @see DocumentParser#reparse(ParsedDocument, int, int, String)
+ */
+public final class ParsedDocument {
+
+  /**
+   * Contexts and errors of a run of blocks that starts with a heading
+   */
+  static final class Segment {
+    final List<ParseResult.Error> errors;
+    final List<GraphContext> events;
+    // true for contexts whose parent is outside of this segment
+    final boolean[] external;
+    int line;
+    int startOffset;
+    // true if an unmatched backtick or a lexer error may start a literal that a later edit closes
+    final boolean unclosed;
+
+    Segment(int startOffset, int line, List<GraphContext> events,
+        List<ParseResult.Error> errors, boolean unclosed) {
+      this.startOffset = startOffset;
+      this.line = line;
+      this.events = events;
+      this.errors = errors;
+      this.unclosed = unclosed;
+      this.external = new boolean[events.size()];
+      for (int i = 0; i < external.length; i++) {
+        final GraphContext event = events.get(i);
+        external[i] = event.getParent() == null;
+        if (event instanceof Documentation) {
+          // build text now so that retained contexts do not pin superseded input
+          ((Documentation) event).getDocumentation();
+        }
+      }
+    }
+
+    /**
+     * Moves this segment within a document
+     */
+    void shift(int offsetDelta, int lineDelta) {
+      startOffset += offsetDelta;
+      line += lineDelta;
+      for (final GraphContext event : events) {
+        shift(event, offsetDelta, lineDelta);
+        if (event instanceof DetailTable) {
+          for (final DetailTable.TableRow row : ((DetailTable) event).rows()) {
+            shift(row, offsetDelta, lineDelta);
+          }
+        }
+      }
+      errors.replaceAll(e -> new ParseResult.Error(e.getLine() + lineDelta,
+          e.getCharPositionInLine(), e.getMessage()));
+    }
+
+    private static void shift(Object context, int offsetDelta, int lineDelta) {
+      if (context instanceof MutableDocumentContext) {
+        final MutableDocumentContext mutable = (MutableDocumentContext) context;
+        final DocumentContext position = (DocumentContext) context;
+        if (position.getLine() != DocumentContext.UNKNOWN_POSITION) {
+          mutable.setLine(position.getLine() + lineDelta);
+        }
+        if (position.getStartOffset() != DocumentContext.UNKNOWN_POSITION) {
+          mutable.setStartOffset(position.getStartOffset() + offsetDelta);
+        }
+        if (position.getEndOffset() != DocumentContext.UNKNOWN_POSITION) {
+          mutable.setEndOffset(position.getEndOffset() + offsetDelta);
+        }
+      }
+    }
+  }
+
+  private final Path importPath;
+  private final List<Segment> segments;
+  private final AtomicBoolean superseded = new AtomicBoolean();
+  private final String text;
+
+  ParsedDocument(String text, Path importPath, List<Segment> segments) {
+    this.text = text;
+    this.importPath = importPath;
+    this.segments = segments;
+  }
+
+  /**
+   * @return document contexts in the order of a sequential parse
+   */
+  public List<GraphContext> getContexts() {
+    final List<GraphContext> contexts = new ArrayList<>();
+    for (final Segment segment : segments) {
+      contexts.addAll(segment.events);
+    }
+    return contexts;
+  }
+
+  /**
+   * @return syntax errors of the document. Lexer errors of a segment precede its parser errors.
+   */
+  public List<ParseResult.Error> getErrors() {
+    final List<ParseResult.Error> errors = new ArrayList<>();
+    for (final Segment segment : segments) {
+      errors.addAll(segment.errors);
+    }
+    return errors;
+  }
+
+  /**
+   * @return base directory for file imports. May be {@code null}.
+   */
+  public Path getImportPath() {
+    return importPath;
+  }
+
+  /**
+   * @return text of the document
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * @return {@code true} if the document was parsed without errors
+   */
+  public boolean isSuccessful() {
+    for (final Segment segment : segments) {
+      if (!segment.errors.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  List<Segment> getSegments() {
+    return segments;
+  }
+
+  /**
+   * Marks this document as superseded by an update
+   *
+   * @throws IllegalStateException if this document was already updated
+   */
+  void supersede() {
+    if (superseded.getAndSet(true)) {
+      throw new IllegalStateException("Document was already updated");
+    }
+  }
+}
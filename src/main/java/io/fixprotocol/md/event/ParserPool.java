@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import io.fixprotocol.md.antlr.MarkdownLexer;
+import io.fixprotocol.md.antlr.MarkdownParser;
+import io.fixprotocol.md.antlr.MarkdownTokenSource;
+import io.fixprotocol.md.antlr.PredicateFreeMarkdownLexer;
+import io.fixprotocol.md.event.DocumentParser.LexerBackend;
+
+/**
+ * A thread-safe pool of Markdown lexers and parsers
+ *
+ * Lexer and parser instances are reused by resetting their inputs rather than constructing new
+ * instances for each document. All recognizers created by a pool share one
+ * {@link PredictionContextCache}.
+ *
+ * The DFA cache that ANTLR builds while parsing is static, so it is shared by all recognizers in
+ * a process, pooled or not. This class exposes it for inspection, warm up and clearing.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class ParserPool {
+
+  /**
+   * A lexer and parser borrowed from a pool. Closing a lease returns the recognizers to the pool.
+   *
+   * A lease is confined to one thread until it is closed. Closing it again has no effect.
+   */
+  public final class Lease implements AutoCloseable {
+    // set when returned to the pool and reset when acquired again
+    private boolean closed = false;
+    private final PredictionContextCache contextCache;
+    private final int generation;
+    private final MarkdownLexer lexer;
+    private final MarkdownParser parser;
+    private PredicateFreeMarkdownLexer predicateFreeLexer;
+    private MarkdownTokenSource tokenSource;
+
+    private Lease(int generation, PredictionContextCache contextCache) {
+      this.generation = generation;
+      this.contextCache = contextCache;
+      this.lexer = share(new MarkdownLexer(null));
+      this.parser = new MarkdownParser(null);
+      parser.setInterpreter(new ParserATNSimulator(parser, parser.getATN(),
+          parser.getInterpreter().decisionToDFA, contextCache));
+      clear();
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release(this);
+      }
+    }
+
+    public MarkdownLexer getLexer() {
+      return lexer;
+    }
+
+    /**
+     * Returns a lexer of the specified kind
+     *
+     * @param backend kind of lexer generated from a grammar
+     * @return a lexer with no input or listeners
+     * @throws IllegalArgumentException if the kind of lexer is not generated from a grammar
+     */
+    public Lexer getLexer(LexerBackend backend) {
+      switch (backend) {
+        case MARKDOWN_LEXER:
+          return lexer;
+        case PREDICATE_FREE:
+          if (predicateFreeLexer == null) {
+            predicateFreeLexer = share(new PredicateFreeMarkdownLexer(null));
+            clear(predicateFreeLexer);
+          }
+          return predicateFreeLexer;
+        default:
+          throw new IllegalArgumentException("No generated lexer for " + backend);
+      }
+    }
+
+    public MarkdownParser getParser() {
+      return parser;
+    }
+
+    /**
+     * @return a hand-coded scanner with no input or listeners
+     */
+    public MarkdownTokenSource getTokenSource() {
+      if (tokenSource == null) {
+        tokenSource = new MarkdownTokenSource(null);
+      }
+      return tokenSource;
+    }
+
+    /**
+     * Restores default settings and drops references to the last input
+     */
+    private void clear() {
+      clear(lexer);
+      if (predicateFreeLexer != null) {
+        clear(predicateFreeLexer);
+      }
+      if (tokenSource != null) {
+        tokenSource.setInputStream(null);
+        tokenSource.setTokenFactory(CommonTokenFactory.DEFAULT);
+        tokenSource.removeErrorListeners();
+      }
+      parser.setInputStream(null);
+      // reset() does not restore the ATN state of a parse that ended abnormally
+      parser.setState(ATNState.INVALID_STATE_NUMBER);
+      parser.removeErrorListeners();
+      parser.removeParseListeners();
+      parser.setBuildParseTree(true);
+      parser.setErrorHandler(new DefaultErrorStrategy());
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    }
+
+    private void clear(Lexer lexer) {
+      lexer.setInputStream(null);
+      lexer.setTokenFactory(CommonTokenFactory.DEFAULT);
+      lexer.removeErrorListeners();
+    }
+
+    private <T extends Lexer> T share(T lexer) {
+      lexer.setInterpreter(new LexerATNSimulator(lexer, lexer.getATN(),
+          lexer.getInterpreter().decisionToDFA, contextCache));
+      return lexer;
+    }
+  }
+
+  /**
+   * Default maximum number of idle recognizers retained by a pool
+   */
+  public static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+  private static final LexerBackend[] GENERATED_BACKENDS =
+      {LexerBackend.MARKDOWN_LEXER, LexerBackend.PREDICATE_FREE};
+
+  private volatile PredictionContextCache contextCache = new PredictionContextCache();
+  private final AtomicInteger generation = new AtomicInteger();
+  private final Queue<Lease> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final int maxIdle;
+
+  /**
+   * Constructs a pool that retains up to {@link #DEFAULT_MAX_IDLE} idle recognizers
+   */
+  public ParserPool() {
+    this(DEFAULT_MAX_IDLE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maxIdle maximum number of idle recognizers to retain. Recognizers released when the
+   *        pool is full are discarded.
+   */
+  public ParserPool(int maxIdle) {
+    this.maxIdle = maxIdle;
+  }
+
+  /**
+   * Borrows a lexer and parser, creating them if none is idle
+   *
+   * @return a lease of recognizers with no input or listeners. Close it when done.
+   */
+  public Lease acquire() {
+    final Lease lease = idle.poll();
+    if (lease != null) {
+      idleCount.decrementAndGet();
+      lease.closed = false;
+      return lease;
+    }
+    return new Lease(generation.get(), contextCache);
+  }
+
+  /**
+   * Clears the DFA cache of Markdown lexers and parsers and the shared prediction context cache
+   *
+   * Since the DFA cache is static, this affects all recognizers in the process. It is best
+   * invoked when no document is being parsed. Recognizers leased before clearing are discarded
+   * when they are released.
+   */
+  public void clearDfaCache() {
+    try (Lease lease = acquire()) {
+      for (final LexerBackend backend : GENERATED_BACKENDS) {
+        lease.getLexer(backend).getInterpreter().clearDFA();
+      }
+      lease.getParser().getInterpreter().clearDFA();
+    }
+    contextCache = new PredictionContextCache();
+    generation.incrementAndGet();
+    Lease lease;
+    while ((lease = idle.poll()) != null) {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return number of states in the DFA caches of all kinds of Markdown lexers and parsers
+   */
+  public int getDfaStateCount() {
+    try (Lease lease = acquire()) {
+      int count = countStates(lease.getParser().getInterpreter().decisionToDFA);
+      for (final LexerBackend backend : GENERATED_BACKENDS) {
+        count += countStates(lease.getLexer(backend).getInterpreter().decisionToDFA);
+      }
+      return count;
+    }
+  }
+
+  /**
+   * @return number of idle recognizers in this pool
+   */
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  /**
+   * @return number of entries in the prediction context cache shared by this pool
+   */
+  public int getPredictionContextCacheSize() {
+    return contextCache.size();
+  }
+
+  /**
+   * Populates the DFA cache by parsing a sample document with the default lexer. Syntax errors
+   * are ignored.
+   *
+   * @param inputStream sample input as markdown. Text is assumed to encoded as UTF-8.
+   * @throws IOException if the document cannot be read
+   */
+  public void warmUp(InputStream inputStream) throws IOException {
+    warmUp(inputStream, LexerBackend.MARKDOWN_LEXER);
+  }
+
+  /**
+   * Populates the DFA cache by parsing a sample document. Syntax errors are ignored.
+   *
+   * @param inputStream sample input as markdown. Text is assumed to encoded as UTF-8.
+   * @param backend kind of lexer to warm up
+   * @throws IOException if the document cannot be read
+   */
+  public void warmUp(InputStream inputStream, LexerBackend backend) throws IOException {
+    try (Lease lease = acquire()) {
+      final CharStream charStream = CharStreams.fromStream(inputStream);
+      final TokenSource tokenSource;
+      if (backend == LexerBackend.HAND_CODED) {
+        final MarkdownTokenSource scanner = lease.getTokenSource();
+        scanner.setInputStream(charStream);
+        tokenSource = scanner;
+      } else {
+        final Lexer lexer = lease.getLexer(backend);
+        lexer.setInputStream(charStream);
+        tokenSource = lexer;
+      }
+      final MarkdownParser parser = lease.getParser();
+      parser.setInputStream(new CommonTokenStream(tokenSource));
+      parser.setBuildParseTree(false);
+      parser.document();
+    }
+  }
+
+  private int countStates(DFA[] decisionToDFA) {
+    int count = 0;
+    for (final DFA dfa : decisionToDFA) {
+      synchronized (dfa.states) {
+        count += dfa.states.size();
+      }
+    }
+    return count;
+  }
+
+  private void release(Lease lease) {
+    lease.clear();
+    if (lease.generation == generation.get() && idleCount.incrementAndGet() <= maxIdle) {
+      idle.offer(lease);
+    } else if (lease.generation == generation.get()) {
+      idleCount.decrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event.mutable;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import io.fixprotocol.md.event.ColumnKeys;
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.DetailProperties;
+import io.fixprotocol.md.event.MarkdownUtil;
+import io.fixprotocol.md.event.MutableDetailProperties;
+import io.fixprotocol.md.event.MutableDetailTable;
+import io.fixprotocol.md.event.MutableDocumentContext;
+import io.fixprotocol.md.event.TableColumn;
+import io.fixprotocol.md.util.ListUtil;
+
+/**
+ * A table that stores its values by column
+ *
+ * Values are held in an array per column, indexed by row, with keys in a symbol table shared by all
+ * rows. Row positions are held in primitive arrays. A row is a view that is created on demand, so a
+ * table does not hold an object per row. Row views of the same row are interchangeable but not
+ * identical.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ColumnarDetailTable implements MutableDetailTable {
+
+  private class RowView implements MutableDetailProperties, TableRow, MutableDocumentContext {
+
+    private final class Entries extends AbstractCollection<Entry<String, String>> {
+
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        return new Iterator<>() {
+          private int next = advance(0);
+
+          @Override
+          public boolean hasNext() {
+            return next < columns.length;
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            final Entry<String, String> entry =
+                Map.entry(keys.get(next), columns[next][index]);
+            next = advance(next + 1);
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        int size = 0;
+        for (int i = advance(0); i < columns.length; i = advance(i + 1)) {
+          size++;
+        }
+        return size;
+      }
+    }
+
+    private Entries entries;
+    private final int index;
+
+    RowView(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void addIntProperty(String key, int value) {
+      addProperty(key, Integer.toString(value));
+    }
+
+    @Override
+    public void addProperty(String key, String value) {
+      if (value != null) {
+        final String trimmed = MarkdownUtil.stripCell(value);
+        if (!trimmed.isEmpty()) {
+          column(intern(key))[index] = trimmed;
+        }
+      }
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+      // if row position unknown, get position of enclosing table
+      return charPositions[index] != UNKNOWN_POSITION ? charPositions[index]
+          : ColumnarDetailTable.this.getCharPositionInLine();
+    }
+
+    @Override
+    public int getEndOffset() {
+      return endOffsets[index];
+    }
+
+    @Override
+    public Integer getIntProperty(String key) {
+      final String property = getProperty(key);
+      if (property != null) {
+        try {
+          return Integer.valueOf(property);
+        } catch (final NumberFormatException e) {
+          return null;
+        }
+      } else
+        return null;
+    }
+
+    @Override
+    public int getLine() {
+      // if row position unknown, get position of enclosing table
+      return lines[index] != UNKNOWN_POSITION ? lines[index] : ColumnarDetailTable.this.getLine();
+    }
+
+    @Override
+    public Collection<Entry<String, String>> getProperties() {
+      if (entries == null) {
+        entries = new Entries();
+      }
+      return entries;
+    }
+
+    @Override
+    public String getProperty(String key) {
+      final int ordinal = keys.ordinal(key);
+      return ordinal != -1 && ordinal < columns.length ? columns[ordinal][index] : null;
+    }
+
+    @Override
+    public int getStartOffset() {
+      return startOffsets[index];
+    }
+
+    @Override
+    public void setCharPositionInLine(int charPositionInLine) {
+      charPositions[index] = charPositionInLine;
+    }
+
+    @Override
+    public void setEndOffset(int endOffset) {
+      endOffsets[index] = endOffset;
+    }
+
+    @Override
+    public void setLine(int line) {
+      lines[index] = line;
+    }
+
+    @Override
+    public void setStartOffset(int startOffset) {
+      startOffsets[index] = startOffset;
+    }
+
+    @Override
+    public String toString() {
+      return "RowView [properties=" + getProperties() + "]";
+    }
+
+    private int advance(int from) {
+      int i = from;
+      while (i < columns.length && columns[i][index] == null) {
+        i++;
+      }
+      return i;
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int capacity = INITIAL_CAPACITY;
+  private int charPositionInLine;
+  private int[] charPositions = new int[INITIAL_CAPACITY];
+  private String[][] columns = new String[0][];
+  private int endOffset = UNKNOWN_POSITION;
+  private int[] endOffsets = new int[INITIAL_CAPACITY];
+  private ColumnKeys keys;
+  private int line;
+  private int[] lines = new int[INITIAL_CAPACITY];
+  // false until the symbol table is copied or was never shared
+  private boolean ownKeys;
+  private Context parent;
+  private int rowCount = 0;
+  private int startOffset = UNKNOWN_POSITION;
+  private int[] startOffsets = new int[INITIAL_CAPACITY];
+
+  public ColumnarDetailTable() {
+    this.keys = new ColumnKeys();
+    this.ownKeys = true;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param keys symbol table of property keys shared by the rows of this table. It is copied
+   *        before a key is added, so it is not modified by this table.
+   */
+  public ColumnarDetailTable(ColumnKeys keys) {
+    this.keys = Objects.requireNonNull(keys, "Missing keys");
+  }
+
+  @Override
+  public DetailProperties addProperties(DetailProperties detailProperties) {
+    final RowView row = newRow();
+    detailProperties.getProperties().forEach(e -> row.addProperty(e.getKey(), e.getValue()));
+    return detailProperties;
+  }
+
+  @Override
+  public int getCharPositionInLine() {
+    return charPositionInLine;
+  }
+
+  @Override
+  public int getEndOffset() {
+    return endOffset;
+  }
+
+  @Override
+  public int getLine() {
+    return line;
+  }
+
+  @Override
+  public Context getParent() {
+    return parent;
+  }
+
+  @Override
+  public int getStartOffset() {
+    return startOffset;
+  }
+
+  @Override
+  public List<? extends TableColumn> getTableColumns() {
+    List<TableColumn> columns = new ArrayList<>();
+
+    for (final TableRow r : rows()) {
+      final List<TableColumn> rowColumns = new ArrayList<>();
+      r.getProperties().forEach(p -> {
+        final String key = p.getKey();
+        final TableColumnImpl column =
+            new TableColumnImpl(key, Math.max(key.length(), p.getValue().length()));
+        rowColumns.add(column);
+      });
+      columns = ListUtil.merge(columns, rowColumns);
+    }
+
+    return columns;
+  }
+
+  @Override
+  public RowView newRow() {
+    if (rowCount == capacity) {
+      capacity *= 2;
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = Arrays.copyOf(columns[i], capacity);
+      }
+      lines = Arrays.copyOf(lines, capacity);
+      charPositions = Arrays.copyOf(charPositions, capacity);
+      startOffsets = Arrays.copyOf(startOffsets, capacity);
+      endOffsets = Arrays.copyOf(endOffsets, capacity);
+    }
+    // positions are unknown until set; line and position then default to the table's
+    lines[rowCount] = UNKNOWN_POSITION;
+    charPositions[rowCount] = UNKNOWN_POSITION;
+    startOffsets[rowCount] = UNKNOWN_POSITION;
+    endOffsets[rowCount] = UNKNOWN_POSITION;
+    return new RowView(rowCount++);
+  }
+
+  @Override
+  public Iterable<TableRow> rows() {
+    return () -> new Iterator<>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < rowCount;
+      }
+
+      @Override
+      public TableRow next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return new RowView(next++);
+      }
+    };
+  }
+
+  @Override
+  public void setCharPositionInLine(int charPositionInLine) {
+    this.charPositionInLine = charPositionInLine;
+  }
+
+  @Override
+  public void setEndOffset(int endOffset) {
+    this.endOffset = endOffset;
+  }
+
+  @Override
+  public void setLine(int line) {
+    this.line = line;
+  }
+
+  @Override
+  public void setParent(Context parent) {
+    this.parent = parent;
+  }
+
+  @Override
+  public void setStartOffset(int startOffset) {
+    this.startOffset = startOffset;
+  }
+
+  private String[] column(int ordinal) {
+    if (ordinal >= columns.length) {
+      final int oldLength = columns.length;
+      columns = Arrays.copyOf(columns, Math.max(ordinal + 1, keys.size()));
+      for (int i = oldLength; i < columns.length; i++) {
+        columns[i] = new String[capacity];
+      }
+    }
+    return columns[ordinal];
+  }
+
+  private int intern(String key) {
+    if (!ownKeys && keys.ordinal(key) == -1) {
+      keys = new ColumnKeys(keys);
+      ownKeys = true;
+    }
+    return keys.intern(key);
+  }
+}
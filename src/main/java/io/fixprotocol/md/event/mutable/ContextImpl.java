@@ -14,9 +14,7 @@
  */
 package io.fixprotocol.md.event.mutable;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import io.fixprotocol.md.event.Context;
 import io.fixprotocol.md.event.MutableContext;
 
@@ -24,7 +22,8 @@ public class ContextImpl implements MutableContext {
 
   private int charPositionInLine = UNKNOWN_POSITION;
   private int endOffset = UNKNOWN_POSITION;
-  private final List<String> keys = new ArrayList<>();
+  private int keyCount;
+  private String[] keys;
   private final int level;
   private int line = UNKNOWN_POSITION;
   private Context parent = null;
@@ -43,13 +42,17 @@ public class ContextImpl implements MutableContext {
   }
 
   public ContextImpl(String[] keys, int level) {
-    this.keys.addAll(Arrays.asList(keys));
+    this.keys = keys.clone();
+    this.keyCount = keys.length;
     this.level = level;
   }
 
   @Override
   public void addKey(String key) {
-    keys.add(key);
+    if (keyCount == keys.length) {
+      keys = Arrays.copyOf(keys, Math.max(4, keyCount * 2));
+    }
+    keys[keyCount++] = key;
   }
 
   @Override
@@ -70,8 +73,8 @@ public class ContextImpl implements MutableContext {
    */
   @Override
   public String getKey(int position) {
-    if (keys.size() > position) {
-      return keys.get(position);
+    if (keyCount > position) {
+      return keys[position];
     } else {
       return null;
     }
@@ -79,8 +82,7 @@ public class ContextImpl implements MutableContext {
 
   @Override
   public String[] getKeys() {
-    final String[] a = new String[keys.size()];
-    return keys.toArray(a);
+    return Arrays.copyOf(keys, keyCount);
   }
 
   /**
@@ -92,9 +94,9 @@ public class ContextImpl implements MutableContext {
    */
   @Override
   public String getKeyValue(String key) {
-    for (int i = 0; i < keys.size() - 1; i++) {
-      if (keys.get(i).equalsIgnoreCase(key)) {
-        return keys.get(i + 1);
+    for (int i = 0; i < keyCount - 1; i++) {
+      if (keys[i].equalsIgnoreCase(key)) {
+        return keys[i + 1];
       }
     }
     return null;
@@ -145,7 +147,7 @@ public class ContextImpl implements MutableContext {
 
   @Override
   public String toString() {
-    return "ContextImpl [keys=" + keys + ", level=" + level + "]";
+    return "ContextImpl [keys=" + Arrays.toString(getKeys()) + ", level=" + level + "]";
   }
 
 }
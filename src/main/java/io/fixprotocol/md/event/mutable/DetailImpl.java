@@ -15,10 +15,9 @@
 package io.fixprotocol.md.event.mutable;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import io.fixprotocol.md.event.ColumnKeys;
 import io.fixprotocol.md.event.Context;
 import io.fixprotocol.md.event.MarkdownUtil;
 import io.fixprotocol.md.event.MutableDetail;
@@ -29,9 +28,23 @@ public class DetailImpl implements MutableDetail {
   private int endOffset = UNKNOWN_POSITION;
   private int line = UNKNOWN_POSITION;
   private Context parent;
-  private final Map<String, String> properties = new LinkedHashMap<>();
+  private final PropertyValues properties;
   private int startOffset = UNKNOWN_POSITION;
 
+  public DetailImpl() {
+    this.properties = new PropertyValues(new ColumnKeys(), false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param keys symbol table of property keys, may be shared with other rows of a table. It is
+   *        copied before a key is added, so it is not modified by this row.
+   */
+  public DetailImpl(ColumnKeys keys) {
+    this.properties = new PropertyValues(Objects.requireNonNull(keys, "Missing keys"), true);
+  }
+
   @Override
   public void addIntProperty(String key, int value) {
     addProperty(key, Integer.toString(value));
@@ -39,7 +52,7 @@ public class DetailImpl implements MutableDetail {
 
   @Override
   public void addProperty(String key, String value) {
-    properties.put(key.toLowerCase(), value);
+    properties.put(key, value);
   }
 
   @Override
@@ -77,12 +90,12 @@ public class DetailImpl implements MutableDetail {
 
   @Override
   public Collection<Entry<String, String>> getProperties() {
-    return Collections.unmodifiableSet(properties.entrySet());
+    return properties.entries();
   }
 
   @Override
   public String getProperty(String key) {
-    return MarkdownUtil.stripCell(properties.get(key.toLowerCase()));
+    return MarkdownUtil.stripCell(properties.get(key));
   }
 
   @Override
@@ -16,12 +16,10 @@ package io.fixprotocol.md.event.mutable;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import io.fixprotocol.md.event.ColumnKeys;
 import io.fixprotocol.md.event.Context;
 import io.fixprotocol.md.event.DetailProperties;
 import io.fixprotocol.md.event.MarkdownUtil;
@@ -37,7 +35,7 @@ public class DetailTableImpl implements MutableDetailTable {
     private int charPositionInLine;
     private int endOffset = UNKNOWN_POSITION;
     private int line;
-    private final Map<String, String> properties = new LinkedHashMap<>();
+    private final PropertyValues properties = new PropertyValues(keys, true);
     private int startOffset = UNKNOWN_POSITION;
 
     @Override
@@ -50,8 +48,7 @@ public class DetailTableImpl implements MutableDetailTable {
       if (value != null) {
         final String trimmed = MarkdownUtil.stripCell(value);
         if (!trimmed.isEmpty()) {
-          properties.put(Objects.requireNonNull(key, "Missing property key").toLowerCase(),
-              trimmed);
+          properties.put(key, trimmed);
         }
       }
     }
@@ -89,12 +86,12 @@ public class DetailTableImpl implements MutableDetailTable {
 
     @Override
     public Collection<Entry<String, String>> getProperties() {
-      return Collections.unmodifiableSet(properties.entrySet());
+      return properties.entries();
     }
 
     @Override
     public String getProperty(String key) {
-      return properties.get(Objects.requireNonNull(key, "Missing property key").toLowerCase());
+      return properties.get(key);
     }
 
     @Override
@@ -132,11 +129,26 @@ public class DetailTableImpl implements MutableDetailTable {
 
   private int charPositionInLine;
   private int endOffset = UNKNOWN_POSITION;
+  private final ColumnKeys keys;
   private int line;
   private Context parent;
   private final List<TableRow> propertiesList = new ArrayList<>();
   private int startOffset = UNKNOWN_POSITION;
 
+  public DetailTableImpl() {
+    this(new ColumnKeys());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param keys symbol table of property keys shared by the rows of this table. A row copies it
+   *        before adding a key, so it is not modified by this table.
+   */
+  public DetailTableImpl(ColumnKeys keys) {
+    this.keys = Objects.requireNonNull(keys, "Missing keys");
+  }
+
   @Override
   public DetailProperties addProperties(DetailProperties detailProperties) {
     final TableRow clone = clone(detailProperties);
@@ -20,7 +20,7 @@ import io.fixprotocol.md.event.MutableDocumentation;
 public class DocumentationImpl implements MutableDocumentation {
 
   private int charPositionInLine = UNKNOWN_POSITION;
-  private final String documentation;
+  private final CharSequence documentation;
   private int endOffset = UNKNOWN_POSITION;
   private final String format;
   private int line = UNKNOWN_POSITION;
@@ -32,7 +32,7 @@ public class DocumentationImpl implements MutableDocumentation {
    *
    * @param documentation contents
    */
-  public DocumentationImpl(String documentation) {
+  public DocumentationImpl(CharSequence documentation) {
     this(documentation, MARKDOWN);
   }
 
@@ -46,7 +46,7 @@ public class DocumentationImpl implements MutableDocumentation {
    *        extended to support various encodings, such as XML. In some cases, it may map to a media
    *        type.
    */
-  public DocumentationImpl(String documentation, String format) {
+  public DocumentationImpl(CharSequence documentation, String format) {
     this.documentation = documentation;
     this.format = format;
   }
@@ -63,6 +63,11 @@ public class DocumentationImpl implements MutableDocumentation {
 
   @Override
   public String getDocumentation() {
+    return documentation != null ? documentation.toString() : null;
+  }
+
+  @Override
+  public CharSequence getDocumentationText() {
     return documentation;
   }
 
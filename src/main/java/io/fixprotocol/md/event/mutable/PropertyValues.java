@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.md.event.mutable;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import io.fixprotocol.md.event.ColumnKeys;
+
+/**
+ * Values of properties of a row, indexed by the ordinals of keys in a symbol table
+ *
+ * Properties are presented in the order of their keys in the symbol table. A symbol table shared
+ * with other rows is copied before a key is added to it.
+ *
+ * @author Don Mendelson
+ *
+ */
+class PropertyValues {
+
+  private static final String[] EMPTY = new String[0];
+
+  private int count = 0;
+  private ColumnKeys keys;
+  // false until the symbol table is copied or was never shared
+  private boolean ownKeys;
+  private String[] values = EMPTY;
+
+  private final Collection<Entry<String, String>> entries =
+      new AbstractCollection<Entry<String, String>>() {
+
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+          return new Iterator<>() {
+            private int next = advance(0);
+
+            @Override
+            public boolean hasNext() {
+              return next < values.length;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              final Entry<String, String> entry = Map.entry(keys.get(next), values[next]);
+              next = advance(next + 1);
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return count;
+        }
+      };
+
+  /**
+   * Constructor
+   *
+   * @param keys symbol table of property keys
+   * @param shared {@code true} if the symbol table may be shared with other rows
+   */
+  PropertyValues(ColumnKeys keys, boolean shared) {
+    this.keys = keys;
+    this.ownKeys = !shared;
+  }
+
+  /**
+   * @return an unmodifiable view of properties as key-value pairs
+   */
+  Collection<Entry<String, String>> entries() {
+    return entries;
+  }
+
+  String get(String key) {
+    final int ordinal = keys.ordinal(key);
+    return ordinal != -1 && ordinal < values.length ? values[ordinal] : null;
+  }
+
+  void put(String key, String value) {
+    if (!ownKeys && keys.ordinal(key) == -1) {
+      keys = new ColumnKeys(keys);
+      ownKeys = true;
+    }
+    final int ordinal = keys.intern(key);
+    if (ordinal >= values.length) {
+      values = Arrays.copyOf(values, Math.max(ordinal + 1, keys.size()));
+    }
+    final String previous = values[ordinal];
+    if (previous == null && value != null) {
+      count++;
+    } else if (previous != null && value == null) {
+      count--;
+    }
+    values[ordinal] = value;
+  }
+
+  @Override
+  public String toString() {
+    return entries.toString();
+  }
+
+  private int advance(int from) {
+    int i = from;
+    while (i < values.length && values[i] == null) {
+      i++;
+    }
+    return i;
+  }
+}
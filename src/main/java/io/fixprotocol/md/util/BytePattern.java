@@ -0,0 +1,87 @@
+package io.fixprotocol.md.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds text encoded as UTF-8 in a buffer of bytes
+ *
+ * The search is Boyer-Moore-Horspool, which skips ahead by up to the length of the text on a
+ * mismatch, so text is found without decoding the buffer.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class BytePattern {
+
+  private final byte[] pattern;
+  private final int[] shifts = new int[256];
+
+  /**
+   * Constructor
+   *
+   * @param text text to find
+   */
+  BytePattern(String text) {
+    this.pattern = text.getBytes(StandardCharsets.UTF_8);
+    final int last = pattern.length - 1;
+    Arrays.fill(shifts, pattern.length);
+    for (int i = 0; i < last; i++) {
+      shifts[pattern[i] & 0xff] = last - i;
+    }
+  }
+
+  /**
+   * @return {@code true} if the text contains a line feed or carriage return
+   */
+  boolean containsLineEnd() {
+    for (final byte b : pattern) {
+      if (b == '\n' || b == '\r') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the first occurrence of the text in a buffer
+   *
+   * @param buffer bytes to search between a position and the limit of the buffer. The position of
+   *        the buffer is not changed.
+   * @param from absolute index in the buffer to start the search
+   * @return absolute index of the first byte of the text, or -1 if not found
+   */
+  int indexOf(ByteBuffer buffer, int from) {
+    final int last = pattern.length - 1;
+    final int end = buffer.limit() - last;
+    int i = Math.max(from, buffer.position());
+    if (last < 0) {
+      return i <= buffer.limit() ? i : -1;
+    }
+    while (i < end) {
+      final byte b = buffer.get(i + last);
+      if (b == pattern[last] && matches(buffer, i, last)) {
+        return i;
+      }
+      i += shifts[b & 0xff];
+    }
+    return -1;
+  }
+
+  /**
+   * @return number of bytes of the encoded text
+   */
+  int length() {
+    return pattern.length;
+  }
+
+  private boolean matches(ByteBuffer buffer, int index, int length) {
+    for (int j = 0; j < length; j++) {
+      if (buffer.get(index + j) != pattern[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -11,22 +11,47 @@ import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class FileImport {
 
+  /**
+   * An imported portion of a file, which holds its file open until closed
+   *
+   * @see ImportSession
+   */
   public static class Imported implements AutoCloseable {
+    // gauges of all imports that are not closed
+    static final AtomicLong mappedBytes = new AtomicLong();
+    static final AtomicInteger openHandles = new AtomicInteger();
+
     final MappedByteBuffer buffer;
     final FileChannel channel;
+    private boolean closed = false;
 
     public Imported(MappedByteBuffer buffer, FileChannel channel) {
       this.buffer = buffer;
       this.channel = channel;
+      openHandles.incrementAndGet();
+      mappedBytes.addAndGet(buffer.capacity());
     }
 
+    /**
+     * Closes the file. The buffer remains readable until it is no longer referenced.
+     */
     @Override
-    public void close() throws Exception {
+    public void close() throws IOException {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+      }
+      openHandles.decrementAndGet();
+      mappedBytes.addAndGet(-buffer.capacity());
       channel.close();
     }
 
@@ -68,6 +93,12 @@ public class FileImport {
    * If no end target is provided in the FileSpec, or the end line number is greater than the number
    * of lines in the file, or the end search is not matched, then the file is read until EOF.
    *
+   * Line numbers are found in an index of line offsets that is built with one scan of a file and
+   * shared by later imports from the same file until the file changes.
+   *
+   * The returned import holds its file open until it is closed, directly or by the
+   * {@link ImportSession} that opened it.
+   *
    * @param baseDir base directory for resolving file path
    * @param spec specification of a file or file portion. FileSpec should be validated for internal
    *        consistency by invoking {@link FileSpec#isValid()}.
@@ -81,7 +112,7 @@ public class FileImport {
     long startPosition = 0;
     final long length = file.length();
 
-    RandomAccessFile randomAccessFile;
+    final RandomAccessFile randomAccessFile;
     try {
       randomAccessFile = new RandomAccessFile(file, "r");
 
@@ -89,12 +120,20 @@ public class FileImport {
         final FileChannel channel = randomAccessFile.getChannel();
         long position = -1;
         final int startLine = spec.getStartLinenumber();
+        final int endLine = spec.getEndLinenumber();
+        final LineIndex lineIndex =
+            startLine != FileSpec.UNKNOWN_LINENUMBER || endLine != FileSpec.UNKNOWN_LINENUMBER
+                ? LineIndex.of(filePath, channel)
+                : null;
+        final ByteBuffer content = spec.getStartSearch() != null || spec.getEndSearch() != null
+            ? channel.map(MapMode.READ_ONLY, 0, length)
+            : null;
         if (startLine != FileSpec.UNKNOWN_LINENUMBER) {
-          position = findLinenumber(randomAccessFile, startLine, startPosition);
+          position = lineIndex.findLinenumber(startLine, startPosition);
         } else {
           final String startSearch = spec.getStartSearch();
           if (startSearch != null) {
-            position = findTextStart(randomAccessFile, startSearch, startPosition);
+            position = findTextStart(content, startSearch, startPosition);
           }
         }
         if (position != -1) {
@@ -105,13 +144,12 @@ public class FileImport {
 
         long endPosition = length;
         position = -1;
-        final int endLine = spec.getEndLinenumber();
         if (endLine != FileSpec.UNKNOWN_LINENUMBER) {
-          position = findLinenumber(randomAccessFile, endLine - startLine + 2, startPosition);
+          position = lineIndex.findLinenumber(endLine - startLine + 2, startPosition);
         } else {
           final String endSearch = spec.getEndSearch();
           if (endSearch != null) {
-            position = findTextEnd(randomAccessFile, endSearch, startPosition);
+            position = findTextEnd(content, endSearch, startPosition);
           }
         }
         if (position != -1) {
@@ -123,6 +161,10 @@ public class FileImport {
         return new Imported(buffer, channel);
       } catch (final IOException e) {
         logger.error(e);
+        randomAccessFile.close();
+        throw e;
+      } catch (final RuntimeException e) {
+        randomAccessFile.close();
         throw e;
       }
     } catch (final FileNotFoundException e) {
@@ -131,46 +173,51 @@ public class FileImport {
     }
   }
 
-  private long findLinenumber(RandomAccessFile randomAccessFile, int lineToSeek, long startPosition)
-      throws IOException {
-    randomAccessFile.seek(startPosition);
-    long position = 0;
-    for (int i = 0; i < lineToSeek; i++) {
-      position = randomAccessFile.getFilePointer();
-      if (randomAccessFile.readLine() == null) {
-        return -1;
-      }
+  private static boolean isLineEnd(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  /**
+   * Finds a line that contains text
+   *
+   * @param content file content
+   * @param pattern text to find within a line
+   * @param startPosition position of the first line to search
+   * @return position of the text, or -1 if not found
+   */
+  private static int findText(ByteBuffer content, BytePattern pattern, long startPosition) {
+    // a line does not contain its terminator, and no line starts at the end of a file
+    if (startPosition >= content.limit() || pattern.containsLineEnd()) {
+      return -1;
     }
-    return position;
+    return pattern.indexOf(content, (int) startPosition);
   }
 
-  private long findTextEnd(RandomAccessFile randomAccessFile, String searchText, long startPosition)
-      throws IOException {
-    randomAccessFile.seek(startPosition);
-    String lineText = "";
-    do {
-      // position of start of line
-      final long position = randomAccessFile.getFilePointer();
-      lineText = randomAccessFile.readLine();
-      if (lineText != null && lineText.contains(searchText)) {
-        return position + lineText.length();
-      }
-    } while (lineText != null);
-    return -1;
+  private static long findTextEnd(ByteBuffer content, String searchText, long startPosition) {
+    final BytePattern pattern = new BytePattern(searchText);
+    final int found = findText(content, pattern, startPosition);
+    if (found == -1) {
+      return -1;
+    }
+    // end of the line, excluding its terminator
+    int position = found + pattern.length();
+    while (position < content.limit() && !isLineEnd(content.get(position))) {
+      position++;
+    }
+    return position;
   }
 
-  private long findTextStart(RandomAccessFile randomAccessFile, String searchText,
-      long startPosition) throws IOException {
-    randomAccessFile.seek(startPosition);
-    String lineText = "";
-    do {
-      // position of start of line
-      final long position = randomAccessFile.getFilePointer();
-      lineText = randomAccessFile.readLine();
-      if (lineText != null && lineText.contains(searchText)) {
-        return position;
-      }
-    } while (lineText != null);
-    return -1;
+  private static long findTextStart(ByteBuffer content, String searchText,
+      long startPosition) {
+    final int found = findText(content, new BytePattern(searchText), startPosition);
+    if (found == -1) {
+      return -1;
+    }
+    // start of the line
+    int position = found;
+    while (position > startPosition && !isLineEnd(content.get(position - 1))) {
+      position--;
+    }
+    return position;
   }
 }
@@ -0,0 +1,249 @@
+package io.fixprotocol.md.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A cache of text imported from files, shared by parsers and threads
+ *
+ * Imports are cached by resolved path of a file and the range of the file specified by a
+ * {@link FileSpec}. The bytes of an import are cached, and its text is decoded on first use. A
+ * cached import is used only while the size and modification time of its file are unchanged. When
+ * the total size of cached imports exceeds a limit, the least recently used imports are evicted.
+ * <pre>
+ * ImportCache importCache = new ImportCache(64 * 1024 * 1024);
+ * DocumentParser parser = DocumentParser.builder().importCache(importCache).build();
+ * </pre>
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ImportCache {
+
+  private static final class Entry {
+    final byte[] bytes;
+    final long modified;
+    final long size;
+    // decoded on first use
+    private volatile String text;
+
+    Entry(byte[] bytes, long size, long modified) {
+      this.bytes = bytes;
+      this.size = size;
+      this.modified = modified;
+    }
+
+    String text() {
+      String decoded = text;
+      if (decoded == null) {
+        decoded = new String(bytes, StandardCharsets.UTF_8);
+        text = decoded;
+      }
+      return decoded;
+    }
+  }
+
+  private static final class Key {
+    final int endLine;
+    final String endSearch;
+    final Path path;
+    final int startLine;
+    final String startSearch;
+
+    Key(Path path, FileSpec spec) {
+      this.path = path;
+      this.startLine = spec.getStartLinenumber();
+      this.endLine = spec.getEndLinenumber();
+      this.startSearch = spec.getStartSearch();
+      this.endSearch = spec.getEndSearch();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return startLine == other.startLine && endLine == other.endLine && path.equals(other.path)
+          && Objects.equals(startSearch, other.startSearch)
+          && Objects.equals(endSearch, other.endSearch);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, startLine, endLine, startSearch, endSearch);
+    }
+  }
+
+  /**
+   * Default limit of the total size of cached imports in bytes
+   */
+  public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long evictions = 0;
+  private final FileImport fileImport = new FileImport();
+  private long hits = 0;
+  private final long maxBytes;
+  private long misses = 0;
+  private long totalBytes = 0;
+
+  /**
+   * Constructs a cache with the default limit
+   */
+  public ImportCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maxBytes limit of the total size of cached imports, as bytes of their files
+   */
+  public ImportCache(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Negative maxBytes");
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Removes all cached imports. Counters are not reset.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    totalBytes = 0;
+  }
+
+  /**
+   * @return number of imports evicted to stay within the limit
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return number of imports found in this cache
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return limit of the total size of cached imports in bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return number of imports read from files, including imports of changed files
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return number of cached imports
+   */
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  /**
+   * @return total size of cached imports in bytes
+   */
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Imports the bytes of a file, or returns bytes cached by a previous import
+   *
+   * Bytes are returned exactly as in the file, without decoding, so they may be copied to another
+   * file.
+   *
+   * @param baseDir base directory for resolving file path
+   * @param spec specification of a file or file portion, as for
+   *        {@link FileImport#importFromFile(Path, FileSpec)}
+   * @return a read-only buffer of imported bytes
+   * @throws IOException if the specified file cannot be opened or read
+   */
+  public ByteBuffer importBytes(Path baseDir, FileSpec spec) throws IOException {
+    return ByteBuffer.wrap(lookup(baseDir, spec).bytes).asReadOnlyBuffer();
+  }
+
+  /**
+   * Imports text from a file, or returns text cached by a previous import
+   *
+   * @param baseDir base directory for resolving file path
+   * @param spec specification of a file or file portion, as for
+   *        {@link FileImport#importFromFile(Path, FileSpec)}
+   * @return imported text, decoded as UTF-8
+   * @throws IOException if the specified file cannot be opened or read
+   */
+  public String importText(Path baseDir, FileSpec spec) throws IOException {
+    return lookup(baseDir, spec).text();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ImportCache [size=" + entries.size() + ", totalBytes=" + totalBytes + ", maxBytes="
+        + maxBytes + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+  }
+
+  private Entry lookup(Path baseDir, FileSpec spec) throws IOException {
+    final Path path = baseDir.resolve(spec.getPath()).toAbsolutePath().normalize();
+    final long size = Files.size(path);
+    final long modified = Files.getLastModifiedTime(path).toMillis();
+    final Key key = new Key(path, spec);
+    synchronized (this) {
+      final Entry entry = entries.get(key);
+      if (entry != null && entry.size == size && entry.modified == modified) {
+        hits++;
+        return entry;
+      }
+      misses++;
+    }
+
+    // read outside of lock; concurrent imports of the same range may both read the file
+    final FileImport.Imported imported = fileImport.importFromFile(baseDir, spec);
+    final byte[] bytes;
+    try {
+      bytes = new byte[imported.getBuffer().remaining()];
+      imported.getBuffer().get(bytes);
+    } finally {
+      imported.close();
+    }
+    final Entry entry = new Entry(bytes, size, modified);
+    if (bytes.length <= maxBytes) {
+      put(key, entry);
+    }
+    return entry;
+  }
+
+  private synchronized void put(Key key, Entry entry) {
+    final Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      totalBytes -= previous.bytes.length;
+    }
+    totalBytes += entry.bytes.length;
+    final Iterator<Entry> iter = entries.values().iterator();
+    while (totalBytes > maxBytes && iter.hasNext()) {
+      final Entry eldest = iter.next();
+      iter.remove();
+      totalBytes -= eldest.bytes.length;
+      evictions++;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package io.fixprotocol.md.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.util.FileImport.Imported;
+
+/**
+ * A scope of file imports, such as a parse or merge of a document
+ *
+ * A session tracks every import that it opens and closes any that remain open when the session is
+ * closed, so files are not held open by a document that failed or was abandoned.
+ * <pre>
+ * try (ImportSession session = new ImportSession()) {
+ *   String text = session.importText(baseDir, spec);
+ * }
+ * </pre>
+ * Gauges of open files and mapped bytes are kept for each session and for all imports in the
+ * process. A mapping of a closed import is released when its buffer is no longer referenced.
+ *
+ * An ImportSession is safe for use by multiple threads.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ImportSession implements AutoCloseable {
+
+  /**
+   * @return number of bytes of files mapped by imports in the process that are not closed
+   */
+  public static long getTotalMappedBytes() {
+    return Imported.mappedBytes.get();
+  }
+
+  /**
+   * @return number of files held open by imports in the process
+   */
+  public static int getTotalOpenHandles() {
+    return Imported.openHandles.get();
+  }
+
+  private boolean closed = false;
+  private final FileImport fileImport;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private long mappedBytes = 0;
+  private final Set<Imported> open = new LinkedHashSet<>();
+
+  /**
+   * Constructs a session with a new FileImport
+   */
+  public ImportSession() {
+    this(new FileImport());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param fileImport reads imported files
+   */
+  public ImportSession(FileImport fileImport) {
+    this.fileImport = Objects.requireNonNull(fileImport, "Missing fileImport");
+  }
+
+  /**
+   * Closes all imports of this session that remain open
+   *
+   * Later imports fail. Failures to close a file are logged.
+   */
+  @Override
+  public void close() {
+    final Imported[] remaining;
+    synchronized (this) {
+      closed = true;
+      remaining = open.toArray(new Imported[0]);
+      open.clear();
+      mappedBytes = 0;
+    }
+    for (final Imported imported : remaining) {
+      try {
+        imported.close();
+      } catch (final IOException e) {
+        logger.error("Failed to close imported file", e);
+      }
+    }
+  }
+
+  /**
+   * @return number of bytes of files mapped by imports of this session that are not released
+   */
+  public synchronized long getMappedBytes() {
+    return mappedBytes;
+  }
+
+  /**
+   * @return number of files held open by this session
+   */
+  public synchronized int getOpenHandles() {
+    return open.size();
+  }
+
+  /**
+   * Imports a portion of a file, which stays open until released or this session is closed
+   *
+   * @param baseDir base directory for resolving file path
+   * @param spec specification of a file or file portion, as for
+   *        {@link FileImport#importFromFile(Path, FileSpec)}
+   * @return an open import
+   * @throws IOException if the specified file cannot be opened or read, or this session is closed
+   */
+  public Imported importFromFile(Path baseDir, FileSpec spec) throws IOException {
+    final Imported imported = fileImport.importFromFile(baseDir, spec);
+    synchronized (this) {
+      if (!closed) {
+        open.add(imported);
+        mappedBytes += imported.getBuffer().capacity();
+        return imported;
+      }
+    }
+    imported.close();
+    throw new IOException("Import session is closed");
+  }
+
+  /**
+   * Imports text from a file and releases the file
+   *
+   * @param baseDir base directory for resolving file path
+   * @param spec specification of a file or file portion
+   * @return imported text
+   * @throws IOException if the specified file cannot be opened or read, or this session is closed
+   */
+  public String importText(Path baseDir, FileSpec spec) throws IOException {
+    final Imported imported = importFromFile(baseDir, spec);
+    try {
+      return FileImport.bufferToText(imported.getBuffer());
+    } finally {
+      release(imported);
+    }
+  }
+
+  /**
+   * Closes an import of this session before the session is closed
+   *
+   * @param imported an import opened by this session
+   * @throws IOException if the file fails to close
+   */
+  public void release(Imported imported) throws IOException {
+    synchronized (this) {
+      if (open.remove(imported)) {
+        mappedBytes -= imported.getBuffer().capacity();
+      }
+    }
+    imported.close();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ImportSession [openHandles=" + open.size() + ", mappedBytes=" + mappedBytes
+        + ", closed=" + closed + "]";
+  }
+}
@@ -0,0 +1,138 @@
+package io.fixprotocol.md.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Offsets of the lines of a file
+ *
+ * An index is built with one scan of a file and cached by path, so repeated imports of line
+ * ranges from the same file do not read it again. A cached index is replaced if the size or
+ * modification time of its file changes. Lines are terminated by a line feed, a carriage return or
+ * a carriage return followed by a line feed, as by {@link java.io.RandomAccessFile#readLine()}.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class LineIndex {
+
+  static final int CACHE_SIZE = 64;
+
+  private static final Map<Path, LineIndex> cache =
+      new LinkedHashMap<>(CACHE_SIZE * 2, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /**
+   * Returns an index of a file, building it if not cached or if the file has changed
+   *
+   * @param path path of a file
+   * @param channel an open channel of the file
+   * @return an index of the lines of the file
+   * @throws IOException if the file cannot be read
+   */
+  static LineIndex of(Path path, FileChannel channel) throws IOException {
+    final Path key = path.toAbsolutePath().normalize();
+    final long size = channel.size();
+    final long modified = Files.getLastModifiedTime(key).toMillis();
+    synchronized (cache) {
+      final LineIndex index = cache.get(key);
+      if (index != null && index.size == size && index.modified == modified) {
+        return index;
+      }
+    }
+    final LineIndex index =
+        new LineIndex(channel.map(MapMode.READ_ONLY, 0, size), size, modified);
+    synchronized (cache) {
+      cache.put(key, index);
+    }
+    return index;
+  }
+
+  static void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  private int lineCount = 0;
+  private long[] lineStarts = new long[256];
+  private final long modified;
+  private final long size;
+
+  LineIndex(ByteBuffer buffer, long size, long modified) {
+    this.size = size;
+    this.modified = modified;
+    final int limit = buffer.limit();
+    int i = buffer.position();
+    if (i < limit) {
+      addLine(i);
+    }
+    while (i < limit) {
+      final byte b = buffer.get(i++);
+      if (b == '\r' && i < limit && buffer.get(i) == '\n') {
+        i++;
+      }
+      if ((b == '\n' || b == '\r') && i < limit) {
+        addLine(i);
+      }
+    }
+    lineStarts = Arrays.copyOf(lineStarts, lineCount);
+  }
+
+  /**
+   * Finds a line counted from a position
+   *
+   * Equivalent to reading lines from a position and returning the position of the last line read.
+   *
+   * @param lineToSeek number of the line to find, where the line that contains the position is 1
+   * @param from a position in the file
+   * @return the offset of the line, or -1 if the file ends before that line
+   */
+  long findLinenumber(int lineToSeek, long from) {
+    if (lineToSeek <= 0) {
+      return 0;
+    } else if (lineToSeek == 1) {
+      return from < size ? from : -1;
+    }
+    final int line = lineAt(from) + lineToSeek - 1;
+    return line < lineCount ? lineStarts[line] : -1;
+  }
+
+  /**
+   * @return number of lines in the file
+   */
+  int getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Finds the line that contains a position
+   *
+   * @param position a position in the file
+   * @return index of the line, 0-based, or -1 if the position precedes the first line
+   */
+  int lineAt(long position) {
+    final int found = Arrays.binarySearch(lineStarts, 0, lineCount, position);
+    return found >= 0 ? found : -found - 2;
+  }
+
+  private void addLine(int start) {
+    if (lineCount == lineStarts.length) {
+      lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+    }
+    lineStarts[lineCount++] = start;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+
+class ByteBufferCharStreamTest {
+
+  @Test
+  void ascii() throws IOException {
+    final String text = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final ByteBufferCharStream stream = stream(text);
+    assertTrue(stream.isAscii());
+    assertSameStream(text, stream);
+  }
+
+  @Test
+  void multibyte() {
+    final String text = "# été\n\n| € | 😀 |\n中文 text\n"
+        .repeat(ByteBufferCharStream.CHECKPOINT_INTERVAL / 8);
+    final ByteBufferCharStream stream = stream(text);
+    assertFalse(stream.isAscii());
+    assertSameStream(text, stream);
+  }
+
+  @Test
+  void malformed() {
+    final byte[] bytes = {(byte) 0x80, 'a', (byte) 0xE2, (byte) 0x82, 'b', (byte) 0xC3,
+        (byte) 0xA9, (byte) 0xA9, (byte) 0xC0, (byte) 0x80, (byte) 0xFF};
+    final ByteBufferCharStream stream = new ByteBufferCharStream(ByteBuffer.wrap(bytes), null);
+    assertEquals("�a�b���", stream.getText(Interval.of(0, 20)));
+    assertEquals(7, stream.size());
+    assertEquals(IntStream.UNKNOWN_SOURCE_NAME, stream.getSourceName());
+  }
+
+  @Test
+  void lexer() throws IOException {
+    final String text = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"))
+        + "\nété | 😀 |\n";
+    final MarkdownLexer expected = new MarkdownLexer(CharStreams.fromString(text));
+    final MarkdownLexer actual = new MarkdownLexer(stream(text));
+    Token token;
+    do {
+      token = expected.nextToken();
+      final Token actualToken = actual.nextToken();
+      assertEquals(token.toString(), actualToken.toString());
+    } while (token.getType() != Token.EOF);
+  }
+
+  @Test
+  void empty() {
+    final ByteBufferCharStream stream = stream("");
+    assertEquals(0, stream.size());
+    assertEquals(IntStream.EOF, stream.LA(1));
+    assertEquals("", stream.getText(Interval.of(0, 0)));
+    assertThrows(IllegalStateException.class, stream::consume);
+  }
+
+  private static ByteBufferCharStream stream(String text) {
+    return new ByteBufferCharStream(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)),
+        "test");
+  }
+
+  private static void assertSameStream(String text, CharStream actual) {
+    final CharStream expected = CharStreams.fromString(text);
+    assertEquals(expected.size(), actual.size());
+    while (expected.LA(1) != IntStream.EOF) {
+      assertEquals(expected.LA(1), actual.LA(1));
+      assertEquals(expected.LA(-1), actual.LA(-1));
+      assertEquals(expected.LA(3), actual.LA(3));
+      expected.consume();
+      actual.consume();
+    }
+    assertEquals(IntStream.EOF, actual.LA(1));
+
+    final Random random = new Random(1L);
+    final int size = expected.size();
+    for (int i = 0; i < 1000; i++) {
+      final int index = random.nextInt(size + 1);
+      expected.seek(index);
+      actual.seek(index);
+      assertEquals(expected.index(), actual.index());
+      final int k = random.nextInt(64) + 1;
+      assertEquals(expected.LA(k), actual.LA(k));
+      final int a = random.nextInt(size);
+      final Interval interval = Interval.of(a, a + random.nextInt(200));
+      assertEquals(expected.getText(interval), actual.getText(interval));
+    }
+    assertEquals(text, actual.toString());
+  }
+}
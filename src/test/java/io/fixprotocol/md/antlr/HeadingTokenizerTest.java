@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class HeadingTokenizerTest {
+
+  // former implementation, retained for comparison
+  private static final Pattern HEADING_TOKEN_REGEX = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+  private static PrintStream out;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/HeadingTokenizerTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  private static String[] regexTokenize(final String headingLine, final int headingLevel) {
+    final List<String> matchList = new ArrayList<String>();
+    final Matcher matcher = HEADING_TOKEN_REGEX.matcher(headingLine.substring(headingLevel + 1));
+    while (matcher.find()) {
+      if (matcher.group(1) != null) {
+        matchList.add(matcher.group(1));
+      } else if (matcher.group(2) != null) {
+        matchList.add(matcher.group(2));
+      } else {
+        matchList.add(matcher.group());
+      }
+    }
+    final String[] array = new String[matchList.size()];
+    return matchList.toArray(array);
+  }
+
+  @Test
+  void sameAsRegex() {
+    final String[] samples = {"## Message NewOrderSingle type 'D'", "### Actor \"Trading Adapter\"",
+        "# \"\" empty", "## unmatched \"quote here", "## a\"b c\"d", "## \"x\"y z", "##   \t spaced  ",
+        "## \"two\" \"quoted words\"", "#"};
+    for (final String sample : samples) {
+      final int level = sample.indexOf(' ');
+      assertArrayEquals(regexTokenize(sample, level), HeadingTokenizer.split(sample, level + 1),
+          sample);
+    }
+
+    final Random random = new Random(17);
+    final String alphabet = "ab \"\t#'";
+    for (int i = 0; i < 10000; i++) {
+      final StringBuilder sb = new StringBuilder("## ");
+      final int length = random.nextInt(20);
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      final String sample = sb.toString();
+      assertArrayEquals(regexTokenize(sample, 2), MarkdownEventSource.tokenizeHeading(sample, 2),
+          sample);
+    }
+  }
+
+  @Test
+  void cached() {
+    final HeadingTokenizer tokenizer = new HeadingTokenizer();
+    final HeadingTokenizer.Heading heading = tokenizer.tokenize("## Field \"Order Qty\" 38");
+    assertEquals(2, heading.level);
+    assertArrayEquals(new String[] {"Field", "Order Qty", "38"}, heading.keys);
+    assertSame(heading, tokenizer.tokenize(new String("## Field \"Order Qty\" 38")));
+    for (int i = 0; i < HeadingTokenizer.CACHE_SIZE; i++) {
+      tokenizer.tokenize("## Field " + i);
+    }
+    final HeadingTokenizer.Heading evicted = tokenizer.tokenize("## Field \"Order Qty\" 38");
+    assertArrayEquals(heading.keys, evicted.keys);
+    assertEquals(3, tokenizer.tokenize("### Codeset Sides").level);
+  }
+
+  /**
+   * Tokenizes headings of a generated document, where most headings repeat
+   */
+  @Test
+  void benchmark() {
+    final String[] headings = new String[20000];
+    for (int i = 0; i < headings.length; i++) {
+      switch (i % 4) {
+        case 0:
+          headings[i] = "## Message NewOrderSingle" + (i % 100) + " type 'D'";
+          break;
+        case 1:
+          headings[i] = "### Field";
+          break;
+        case 2:
+          headings[i] = "### Actor \"Trading Adapter\"";
+          break;
+        default:
+          headings[i] = "#### Codeset Sides" + (i % 7) + " type char";
+      }
+    }
+    final int rounds = 10;
+    long regex = Long.MAX_VALUE;
+    long split = Long.MAX_VALUE;
+    long cached = Long.MAX_VALUE;
+    int count = 0;
+    for (int round = 0; round < rounds; round++) {
+      long start = System.nanoTime();
+      for (final String heading : headings) {
+        count += regexTokenize(heading, heading.indexOf(' ')).length;
+      }
+      regex = Math.min(regex, System.nanoTime() - start);
+      start = System.nanoTime();
+      for (final String heading : headings) {
+        count += HeadingTokenizer.split(heading, heading.indexOf(' ') + 1).length;
+      }
+      split = Math.min(split, System.nanoTime() - start);
+      final HeadingTokenizer tokenizer = new HeadingTokenizer();
+      start = System.nanoTime();
+      for (final String heading : headings) {
+        count += tokenizer.tokenize(heading).keys.length;
+      }
+      cached = Math.min(cached, System.nanoTime() - start);
+    }
+    out.format("Tokenized %d headings, best of %d rounds (%d keys)%n", headings.length, rounds,
+        count);
+    out.format("Regular expression %d us%n", regex / 1000);
+    out.format("Single pass %d us%n", split / 1000);
+    out.format("Single pass with cache %d us%n", cached / 1000);
+  }
+}
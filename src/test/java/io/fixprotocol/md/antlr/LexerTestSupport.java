@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * Comparison and timing of token sources shared by lexer tests
+ */
+final class LexerTestSupport {
+
+  /**
+   * @return number of tokens before EOF
+   */
+  static int count(TokenSource tokenSource) {
+    int count = 0;
+    while (tokenSource.nextToken().getType() != Token.EOF) {
+      count++;
+    }
+    return count;
+  }
+
+  static double mbPerSecond(int length, int iterations, long nanos) {
+    return (double) length * iterations / (1024 * 1024) / (nanos / 1E9);
+  }
+
+  /**
+   * @return elapsed nanoseconds of all iterations
+   */
+  static long time(Runnable runnable, int iterations) {
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      runnable.run();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Describes tokens and lexer errors in order, through EOF, for comparison of token sources
+   */
+  static List<String> tokenize(TokenSource tokenSource) {
+    final List<String> tokens = new ArrayList<>();
+    final ANTLRErrorListener errorListener = new BaseErrorListener() {
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+          int charPositionInLine, String msg, RecognitionException e) {
+        tokens.add(String.format("error %d:%d %s", line, charPositionInLine, msg));
+      }
+    };
+    if (tokenSource instanceof MarkdownTokenSource) {
+      ((MarkdownTokenSource) tokenSource).addErrorListener(errorListener);
+    } else {
+      final Lexer lexer = (Lexer) tokenSource;
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(errorListener);
+    }
+    Token token;
+    do {
+      token = tokenSource.nextToken();
+      tokens.add(String.format("%s %d:%d [%d,%d] '%s'",
+          MarkdownLexer.VOCABULARY.getSymbolicName(token.getType()), token.getLine(),
+          token.getCharPositionInLine(), token.getStartIndex(), token.getStopIndex(),
+          token.getText()));
+    } while (token.getType() != Token.EOF);
+    return tokens;
+  }
+
+  private LexerTestSupport() {}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static io.fixprotocol.md.antlr.LexerTestSupport.count;
+import static io.fixprotocol.md.antlr.LexerTestSupport.mbPerSecond;
+import static io.fixprotocol.md.antlr.LexerTestSupport.time;
+import static io.fixprotocol.md.antlr.LexerTestSupport.tokenize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Conformance test of MarkdownTokenSource against MarkdownLexer, with a throughput comparison
+ */
+class MarkdownTokenSourceTest {
+
+  private static PrintStream out;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/MarkdownTokenSourceTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"src/test/resources/md2orchestra-proto.md",
+      "src/test/resources/badmarkdown.md", "src/test/resources/documentwithimport.md",
+      "src/test/resources/fileimport.md"})
+  void corpus(String fileName) throws IOException {
+    final String text = Files.readString(Path.of(fileName));
+    assertSameTokens(text);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"a\\`b`c\n", "`a\\` b`\n", "# heading \\`x`\n", "> quote \\\\`x` y\n",
+      "- item \\`x`\n", "| a \\\\| b | \\| c |\n", "| a \\\\`x` |\n", "\\\\\\\n#x\n",
+      "para\\\n| cell |\n", "\\`x`\n", "| `lit` | x\\#y |\n|---|---|\n| 1 | 2 |\n",
+      "```xml import f.xml 1 - 3\n<a/>\n\n```\n", "```\ncode\n```", "```\nx", "```\nx\\\n```\n",
+      "text `code` \\> more\n", "\\|---|\n", "# a\\\n\\# b\n", "`\\`\n", "| a | b\\\\\n",
+      "#\n>\n|\n", "a\rb\r\n", "x\\#\\>\\|y\n", "| :---: | --- |\n", "1. one\n  * two\n",
+      "```\nfrom \"a b\" to \"c\"d import x\n```\n", "```\n``x `y ```\rz\n```\n",
+      "```\nline\r\nx\r\n```\r\n", "\u00e9t\u00e9 | \u00fc\n", "```"})
+  void snippets(String text) {
+    assertSameTokens(text);
+  }
+
+  @Test
+  void unbuffered() throws IOException {
+    final String text = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final MarkdownTokenSource tokenSource = new MarkdownTokenSource(new UnbufferedCharStream(
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 16,
+        StandardCharsets.UTF_8));
+    tokenSource.setTokenFactory(new CommonTokenFactory(true));
+    final MarkdownLexer lexer = new MarkdownLexer(CharStreams.fromString(text));
+    lexer.setTokenFactory(new CommonTokenFactory(true));
+    assertEquals(tokenize(lexer), tokenize(tokenSource));
+  }
+
+  @Test
+  void throughput() throws IOException {
+    final String unit = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final String text = unit.repeat(20);
+    final int iterations = 5;
+
+    // warm up DFA caches and JIT
+    count(new MarkdownLexer(CharStreams.fromString(text)));
+    count(new PredicateFreeMarkdownLexer(CharStreams.fromString(text)));
+    count(new MarkdownTokenSource(CharStreams.fromString(text)));
+
+    final long predicated = time(() -> count(new MarkdownLexer(CharStreams.fromString(text))),
+        iterations);
+    // best of several rounds since the faster scanners are sensitive to GC and JIT timing
+    long predicateFree = Long.MAX_VALUE;
+    long handCoded = Long.MAX_VALUE;
+    for (int round = 0; round < 5; round++) {
+      predicateFree = Math.min(predicateFree, time(
+          () -> count(new PredicateFreeMarkdownLexer(CharStreams.fromString(text))), iterations));
+      handCoded = Math.min(handCoded,
+          time(() -> count(new MarkdownTokenSource(CharStreams.fromString(text))), iterations));
+    }
+    out.format("Lexed %d characters %d times%n", text.length(), iterations);
+    out.format("MarkdownLexer %d ms, %.1f MB/s%n", predicated / 1000000,
+        mbPerSecond(text.length(), iterations, predicated));
+    out.format("PredicateFreeMarkdownLexer %d ms, %.1f MB/s%n", predicateFree / 1000000,
+        mbPerSecond(text.length(), iterations, predicateFree));
+    out.format("MarkdownTokenSource %d ms, %.1f MB/s%n", handCoded / 1000000,
+        mbPerSecond(text.length(), iterations, handCoded));
+  }
+
+  private void assertSameTokens(String text) {
+    assertEquals(tokenize(new MarkdownLexer(CharStreams.fromString(text))),
+        tokenize(new MarkdownTokenSource(CharStreams.fromString(text))));
+  }
+}
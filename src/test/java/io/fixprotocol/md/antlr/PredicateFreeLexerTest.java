@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static io.fixprotocol.md.antlr.LexerTestSupport.mbPerSecond;
+import static io.fixprotocol.md.antlr.LexerTestSupport.time;
+import static io.fixprotocol.md.antlr.LexerTestSupport.tokenize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Differential test of PredicateFreeMarkdownLexer against MarkdownLexer, with a throughput
+ * comparison
+ */
+class PredicateFreeLexerTest {
+
+  private static PrintStream out;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/PredicateFreeLexerTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"src/test/resources/md2orchestra-proto.md",
+      "src/test/resources/badmarkdown.md", "src/test/resources/documentwithimport.md",
+      "src/test/resources/fileimport.md"})
+  void corpus(String fileName) throws IOException {
+    final String text = Files.readString(Path.of(fileName));
+    assertSameTokens(text);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"a\\`b`c\n", "`a\\` b`\n", "# heading \\`x`\n", "> quote \\\\`x` y\n",
+      "- item \\`x`\n", "| a \\\\| b | \\| c |\n", "| a \\\\`x` |\n", "\\\\\\\n#x\n",
+      "para\\\n| cell |\n", "\\`x`\n", "| `lit` | x\\#y |\n|---|---|\n| 1 | 2 |\n",
+      "```xml import f.xml 1 - 3\n<a/>\n\n```\n", "```\ncode\n```", "```\nx", "```\nx\\\n```\n",
+      "text `code` \\> more\n", "\\|---|\n", "# a\\\n\\# b\n", "`\\`\n", "| a | b\\\\\n",
+      "`````\nb", "\r\\## a", "```\n\r| a | b |"})
+  void snippets(String text) {
+    assertSameTokens(text);
+  }
+
+  /**
+   * Compares tokens of random input, which is mostly malformed, to exercise error recovery
+   */
+  @Test
+  void randomInput() {
+    final Random random = new Random(31);
+    final String alphabet = "`\\#>|\n\r -:ab1.\t\"*";
+    for (int i = 0; i < 5000; i++) {
+      final StringBuilder sb = new StringBuilder();
+      final int length = random.nextInt(30);
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertSameTokens(sb.toString());
+    }
+  }
+
+  @Test
+  void throughput() throws IOException {
+    final String unit = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final String text = unit.repeat(20);
+    final int iterations = 5;
+
+    // warm up DFA caches
+    tokenize(new MarkdownLexer(CharStreams.fromString(text)));
+    tokenize(new PredicateFreeMarkdownLexer(CharStreams.fromString(text)));
+
+    final long predicated = time(() -> tokenize(new MarkdownLexer(CharStreams.fromString(text))),
+        iterations);
+    final long predicateFree = time(
+        () -> tokenize(new PredicateFreeMarkdownLexer(CharStreams.fromString(text))), iterations);
+    out.format("Lexed %d characters %d times%n", text.length(), iterations);
+    out.format("MarkdownLexer %d ms, %.1f MB/s%n", predicated / 1000000,
+        mbPerSecond(text.length(), iterations, predicated));
+    out.format("PredicateFreeMarkdownLexer %d ms, %.1f MB/s%n", predicateFree / 1000000,
+        mbPerSecond(text.length(), iterations, predicateFree));
+  }
+
+  private void assertSameTokens(String text) {
+    final CharStream expectedInput = CharStreams.fromString(text);
+    final CharStream actualInput = CharStreams.fromString(text);
+    assertEquals(tokenize(new MarkdownLexer(expectedInput)),
+        tokenize(new PredicateFreeMarkdownLexer(actualInput)));
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md.antlr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+import org.junit.jupiter.api.Test;
+
+class TokenTextTest {
+
+  @Test
+  void readsTextOnce() {
+    final CharStream input = CharStreams.fromString("one two three");
+    final TokenText text = new TokenText(new CommonToken(new Pair<TokenSource, CharStream>(null,
+        input), MarkdownLexer.PARAGRAPHLINE, Token.DEFAULT_CHANNEL, 4, 6));
+    assertEquals(3, text.length());
+    assertEquals('w', text.charAt(1));
+    assertEquals("wo", text.subSequence(1, 3).toString());
+    final String first = text.toString();
+    assertEquals("two", first);
+    assertSame(first, text.toString());
+  }
+}
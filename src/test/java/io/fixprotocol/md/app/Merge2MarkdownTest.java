@@ -1,9 +1,17 @@
 package io.fixprotocol.md.app;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.md.util.ImportCache;
 
 class Merge2MarkdownTest {
 
@@ -19,4 +27,54 @@ class Merge2MarkdownTest {
     merge2Markdown.merge();
   }
 
+  @Test
+  void mergeWithImportCache() throws IOException {
+    final ImportCache importCache = new ImportCache();
+    for (int i = 0; i < 2; i++) {
+      Merge2Markdown.builder().inputFile("src/test/resources/documentwithimport.md")
+          .outputFile("target/test/Merge2MarkdownCached.md").importDir("src/test/resources")
+          .importCache(importCache).build().merge();
+    }
+    assertEquals(1, importCache.getMisses());
+    assertEquals(1, importCache.getHits());
+    Merge2Markdown.builder().inputFile("src/test/resources/documentwithimport.md")
+        .outputFile("target/test/Merge2MarkdownUncached.md").importDir("src/test/resources")
+        .build().merge();
+    assertEquals(Files.readString(Path.of("target/test/Merge2MarkdownUncached.md")),
+        Files.readString(Path.of("target/test/Merge2MarkdownCached.md")));
+  }
+
+  @Test
+  void mergeCopiesBytes(@TempDir Path dir) throws IOException {
+    // not valid UTF-8, with a lone carriage return
+    final byte[] imported = {'<', 'a', '>', (byte) 0xff, (byte) 0xc3, '\r', '<', '/', 'a', '>'};
+    Files.write(dir.resolve("bytes.xml"), imported);
+    Files.writeString(dir.resolve("doc.md"), "# Bytes\n\n```xml import bytes.xml\n```\n");
+    final ImportCache importCache = new ImportCache();
+    byte[] uncached = null;
+    for (final ImportCache cache : new ImportCache[] {null, importCache, importCache}) {
+      final Path output = dir.resolve("merged.md");
+      Merge2Markdown.builder().inputFile(dir.resolve("doc.md").toString())
+          .outputFile(output.toString()).importDir(dir.toString()).importCache(cache).build()
+          .merge();
+      final byte[] merged = Files.readAllBytes(output);
+      if (uncached == null) {
+        uncached = merged;
+        assertTrue(indexOf(merged, imported) >= 0);
+      } else {
+        assertArrayEquals(uncached, merged);
+      }
+    }
+    assertEquals(1, importCache.getHits());
+  }
+
+  private static int indexOf(byte[] bytes, byte[] target) {
+    for (int i = 0; i + target.length <= bytes.length; i++) {
+      if (Arrays.equals(bytes, i, i + target.length, target, 0, target.length)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
 }
@@ -0,0 +1,105 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.junit.jupiter.api.Test;
+
+class ColumnKeysTest {
+
+  @Test
+  void intern() {
+    final ColumnKeys keys = new ColumnKeys(List.of("Name", "Tag", "NAME"));
+    assertEquals(2, keys.size());
+    assertEquals("name", keys.get(0));
+    assertEquals(0, keys.ordinal("nAmE"));
+    assertEquals(-1, keys.ordinal("Type"));
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i + 2, keys.intern("Column" + i));
+    }
+    assertEquals(1, keys.intern("tag"));
+    assertThrows(IndexOutOfBoundsException.class, () -> keys.get(22));
+  }
+
+  @Test
+  void detail() {
+    final ColumnKeys keys = new ColumnKeys(List.of("Name", "Tag"));
+    final ContextFactory factory = new ContextFactory();
+    final MutableDetail detail = factory.createDetail(keys);
+    detail.addProperty("Tag", "44");
+    detail.addProperty("Name", "Price");
+    detail.addProperty("Type", "Price");
+    detail.addIntProperty("TAG", 45);
+    assertEquals(List.of(Map.entry("name", "Price"), Map.entry("tag", "45"),
+        Map.entry("type", "Price")), new ArrayList<>(detail.getProperties()));
+    // a new key is added to a copy of the shared keys
+    assertEquals(2, keys.size());
+    assertEquals(45, detail.getIntProperty("tag"));
+    assertNull(detail.getProperty("Description"));
+
+    final MutableDetail other = factory.createDetail(keys);
+    other.addProperty("Type", "Qty");
+    assertEquals(List.of(Map.entry("type", "Qty")), new ArrayList<>(other.getProperties()));
+    assertNull(other.getProperty("name"));
+  }
+
+  @Test
+  void copyOnWrite() {
+    final ColumnKeys keys = new ColumnKeys(List.of("Name", "Tag"));
+    final ContextFactory factory = new ContextFactory();
+    final MutableDetail first = factory.createDetail(keys);
+    final MutableDetail second = factory.createDetail(keys);
+    first.addProperty("Name", "Price");
+    first.addProperty("Type", "Price");
+    second.addProperty("Presence", "required");
+    assertEquals(List.of(Map.entry("name", "Price"), Map.entry("type", "Price")),
+        new ArrayList<>(first.getProperties()));
+    assertEquals(List.of(Map.entry("presence", "required")),
+        new ArrayList<>(second.getProperties()));
+    assertNull(second.getProperty("Type"));
+
+    for (final ContextFactory.TableLayout layout : ContextFactory.TableLayout.values()) {
+      final MutableDetailTable table = new ContextFactory(layout).createDetailTable(keys);
+      final MutableDetailProperties row = table.newRow();
+      row.addProperty("Tag", "44");
+      row.addProperty("Type", "int");
+      assertEquals(List.of(Map.entry("tag", "44"), Map.entry("type", "int")),
+          new ArrayList<>(row.getProperties()));
+    }
+    assertEquals(2, keys.size());
+  }
+
+  @Test
+  void sharedByRows() throws IOException {
+    final String text = "## Message Order\n\n| Name | Tag |\n|------|----:|\n| Price | 44 |\n"
+        + "| | 38 |\n| Side | 54 |\n";
+    final List<GraphContext> events = new ArrayList<>();
+    new DocumentParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+        events::add);
+    final List<Detail> details = new ArrayList<>();
+    DetailTable table = null;
+    for (final GraphContext event : events) {
+      if (event instanceof Detail) {
+        details.add((Detail) event);
+      } else if (event instanceof DetailTable) {
+        table = (DetailTable) event;
+      }
+    }
+    assertEquals(3, details.size());
+    assertNull(details.get(1).getProperty("Name"));
+    assertEquals("38", details.get(1).getProperty("TAG"));
+    final Entry<String, String> first = details.get(0).getProperties().iterator().next();
+    assertSame(first.getKey(), details.get(2).getProperties().iterator().next().getKey());
+    final DetailTable.TableRow row = table.rows().iterator().next();
+    assertEquals("Price", row.getProperty("NAME"));
+    assertSame(first.getKey(), row.getProperties().iterator().next().getKey());
+  }
+}
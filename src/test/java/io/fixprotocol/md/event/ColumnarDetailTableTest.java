@@ -0,0 +1,158 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol.md.event.ContextFactory.TableLayout;
+
+class ColumnarDetailTableTest {
+
+  private static final String[] HEADINGS = {"Name", "Tag", "Presence", "Type", "Description"};
+  private static PrintStream out;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/ColumnarDetailTableTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  @Test
+  void sameAsParse() throws IOException {
+    final List<String> expected = new ArrayList<>();
+    new DocumentParser().parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> expected.add(DocumentParserTest.describe(c).replace("DetailTableImpl ",
+            "ColumnarDetailTable ")));
+    final DocumentParser parser = DocumentParser.builder()
+        .contextFactory(new ContextFactory(TableLayout.COLUMNS)).build();
+    assertEquals(TableLayout.COLUMNS, parser.getContextFactory().getTableLayout());
+    final List<String> actual = new ArrayList<>();
+    parser.parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> actual.add(DocumentParserTest.describe(c)));
+    assertTrue(actual.stream().anyMatch(e -> e.startsWith("ColumnarDetailTable ")));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void rows() throws Exception {
+    final MutableDetailTable table = new ContextFactory(TableLayout.COLUMNS).createDetailTable();
+    MutableDetailProperties row = table.newRow();
+    row.addProperty("Name", "Price");
+    row.addIntProperty("Tag", 44);
+    row = table.newRow();
+    row.addProperty("Tag", "38");
+    row.addProperty("Description", " ");
+    for (int i = 0; i < 40; i++) {
+      table.newRow().addProperty("Note" + (i % 3), "Row " + i);
+    }
+    final MutableDetail detail = new ContextFactory().createDetail();
+    detail.addProperty("NAME", "Side");
+    table.addProperties(detail);
+
+    final List<DetailTable.TableRow> rows = new ArrayList<>();
+    table.rows().forEach(rows::add);
+    assertEquals(43, rows.size());
+    assertEquals(List.of(Map.entry("name", "Price"), Map.entry("tag", "44")),
+        new ArrayList<>(rows.get(0).getProperties()));
+    assertEquals(List.of(Map.entry("tag", "38")), new ArrayList<>(rows.get(1).getProperties()));
+    assertNull(rows.get(1).getProperty("Description"));
+    assertEquals(38, rows.get(1).getIntProperty("TAG"));
+    assertEquals("Row 39", rows.get(41).getProperty("note0"));
+    assertEquals("Side", rows.get(42).getProperty("name"));
+    assertEquals(1, rows.get(42).getProperties().size());
+
+    final MutableDetailTable rowTable = new ContextFactory().createDetailTable();
+    for (final DetailTable.TableRow r : rows) {
+      rowTable.addProperties(r);
+    }
+    assertEquals(String.valueOf(write(rowTable)), String.valueOf(write(table)));
+  }
+
+  /**
+   * Compares footprint and iteration of a table of 10,000 rows stored by row and by column
+   *
+   * Values are shared by both tables, so the difference is due to storage layout.
+   */
+  @Test
+  void footprint() {
+    final int rowCount = 10000;
+    final String[][] values = new String[rowCount][HEADINGS.length];
+    for (int r = 0; r < rowCount; r++) {
+      for (int c = 0; c < HEADINGS.length; c++) {
+        values[r][c] = HEADINGS[c] + r;
+      }
+    }
+    out.format("Table of %d rows and %d columns%n", rowCount, HEADINGS.length);
+    for (final TableLayout layout : TableLayout.values()) {
+      final ContextFactory factory = new ContextFactory(layout);
+      final long before = usedMemory();
+      final MutableDetailTable table = build(factory, values);
+      final long retained = usedMemory() - before;
+
+      long best = Long.MAX_VALUE;
+      long total = 0;
+      for (int round = 0; round < 20; round++) {
+        final long start = System.nanoTime();
+        for (final DetailTable.TableRow row : table.rows()) {
+          total += row.getProperty("Type").length();
+          for (final Map.Entry<String, String> property : row.getProperties()) {
+            total += property.getValue().length();
+          }
+        }
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      assertTrue(total > 0);
+      out.format("%-7s retained about %,d KB, iterated in %d us%n", layout,
+          retained / 1024, best / 1000);
+    }
+  }
+
+  private static MutableDetailTable build(ContextFactory factory, String[][] values) {
+    final MutableDetailTable table = factory.createDetailTable(new ColumnKeys(List.of(HEADINGS)));
+    for (int r = 0; r < values.length; r++) {
+      final MutableDetailProperties row = table.newRow();
+      if (row instanceof MutableDocumentContext) {
+        ((MutableDocumentContext) row).setLine(r + 3);
+      }
+      for (int c = 0; c < HEADINGS.length; c++) {
+        row.addProperty(HEADINGS[c], values[r][c]);
+      }
+    }
+    return table;
+  }
+
+  private static long usedMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static ByteArrayOutputStream write(DetailTable table) throws Exception {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (DocumentWriter writer =
+        new DocumentWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+      writer.write(table);
+    }
+    return outputStream;
+  }
+}
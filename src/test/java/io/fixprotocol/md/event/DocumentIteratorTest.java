@@ -0,0 +1,90 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+class DocumentIteratorTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"src/test/resources/md2orchestra-proto.md",
+      "src/test/resources/badmarkdown.md", "src/test/resources/documentwithimport.md"})
+  void sameAsParse(String fileName) throws IOException {
+    // errors are interleaved with events as in streaming mode
+    final List<String> expected = new ArrayList<>();
+    DocumentParser.builder().streaming(true).build().parse(new FileInputStream(fileName),
+        c -> expected.add(DocumentParserTest.describe(c)),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg),
+        Path.of(fileName).toAbsolutePath().getParent());
+
+    final List<String> actual = new ArrayList<>();
+    try (DocumentIterator iterator = new DocumentParser().open(Path.of(fileName),
+        (line, charPositionInLine, msg) -> actual
+            .add(line + ":" + charPositionInLine + " " + msg))) {
+      while (iterator.hasNext()) {
+        actual.add(DocumentParserTest.describe(iterator.next()));
+      }
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void earlyClose() throws IOException {
+    final ParserPool pool = new ParserPool();
+    final DocumentParser parser = DocumentParser.builder().pool(pool).build();
+    final DocumentIterator iterator =
+        parser.open(Path.of("src/test/resources/md2orchestra-proto.md"), null);
+    assertTrue(iterator.hasNext());
+    iterator.next();
+    assertEquals(0, pool.getIdleCount());
+    iterator.close();
+    assertEquals(1, pool.getIdleCount());
+    assertFalse(iterator.hasNext());
+    assertThrows(NoSuchElementException.class, iterator::next);
+  }
+
+  @Test
+  void parseAfterEarlyClose() throws IOException {
+    final DocumentParser parser = DocumentParser.builder().pool(new ParserPool(1)).build();
+    try (DocumentIterator iterator =
+        parser.open(Path.of("src/test/resources/md2orchestra-proto.md"), null)) {
+      iterator.next();
+    }
+    // the returned parser reports errors in a malformed document
+    final List<String> errors = new ArrayList<>();
+    assertFalse(parser.parse(
+        new ByteArrayInputStream("```\n".getBytes(StandardCharsets.UTF_8)), c -> {
+        }, (line, charPositionInLine, msg) -> errors.add(msg), null));
+    assertFalse(errors.isEmpty());
+  }
+
+  @Test
+  void findTable() throws IOException {
+    final DocumentParser parser = new DocumentParser();
+    final Optional<DetailTable> table;
+    try (Stream<GraphContext> stream = parser
+        .open(new FileInputStream("src/test/resources/md2orchestra-proto.md"), null, null)
+        .stream()) {
+      table = stream.filter(c -> c instanceof DetailTable)
+          .map(c -> (DetailTable) c).filter(t -> t.getParent() != null
+              && "Fields".equals(t.getParent().getKey(0)))
+          .findFirst();
+    }
+    assertTrue(table.isPresent());
+    assertTrue(table.get().rows().iterator().hasNext());
+  }
+}
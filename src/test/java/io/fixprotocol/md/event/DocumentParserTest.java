@@ -1,17 +1,34 @@
 package io.fixprotocol.md.event;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.md.antlr.MarkdownLexer;
 
 class DocumentParserTest {
   private DocumentParser parser;
@@ -54,4 +71,306 @@ class DocumentParserTest {
     assertTrue(parser.parse(inputStream, contextConsumer, null, Path.of("src", "test", "resources")));
   }
 
+  @Test
+  void streaming() throws IOException {
+    final List<String> expected = new ArrayList<>();
+    assertTrue(new DocumentParser().parse(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> expected.add(describe(c))));
+
+    final DocumentParser streamingParser = DocumentParser.builder().streaming(true).build();
+    final List<String> actual = new ArrayList<>();
+    assertTrue(streamingParser.parse(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> actual.add(describe(c))));
+    assertEquals(expected, actual);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"src/test/resources/md2orchestra-proto.md",
+      "src/test/resources/badmarkdown.md"})
+  void twoStage(String fileName) throws IOException {
+    final List<String> expected = new ArrayList<>();
+    final boolean expectedResult = DocumentParser.builder().twoStage(false).build().parse(
+        new FileInputStream(fileName), c -> expected.add(describe(c)),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg),
+        null);
+
+    final List<String> actual = new ArrayList<>();
+    final boolean actualResult = DocumentParser.builder().twoStage(true).build().parse(
+        new FileInputStream(fileName), c -> actual.add(describe(c)),
+        (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine + " " + msg),
+        null);
+    assertEquals(expectedResult, actualResult);
+    assertEquals(expected, actual);
+  }
+
+  @ParameterizedTest
+  @CsvSource({"PREDICATE_FREE,src/test/resources/md2orchestra-proto.md",
+      "PREDICATE_FREE,src/test/resources/badmarkdown.md",
+      "HAND_CODED,src/test/resources/md2orchestra-proto.md",
+      "HAND_CODED,src/test/resources/badmarkdown.md"})
+  void lexerBackend(DocumentParser.LexerBackend backend, String fileName) throws IOException {
+    final List<String> expected = new ArrayList<>();
+    new DocumentParser().parse(new FileInputStream(fileName), c -> expected.add(describe(c)),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg),
+        null);
+
+    final DocumentParser backendParser = DocumentParser.builder().lexerBackend(backend).build();
+    final List<String> actual = new ArrayList<>();
+    backendParser.parse(new FileInputStream(fileName), c -> actual.add(describe(c)),
+        (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine + " " + msg),
+        null);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void unbuffered() throws IOException {
+    final List<String> expected = new ArrayList<>();
+    assertTrue(new DocumentParser().parse(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> expected.add(describe(c))));
+
+    final DocumentParser unbufferedParser =
+        DocumentParser.builder().unbuffered(true).unbufferedSize(16).build();
+    final List<String> actual = new ArrayList<>();
+    assertTrue(unbufferedParser.parse(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> actual.add(describe(c))));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void unbufferedValidate() throws IOException {
+    final List<String> expected = new ArrayList<>();
+    assertFalse(new DocumentParser().validate(
+        new FileInputStream("src/test/resources/badmarkdown.md"),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine)));
+
+    final DocumentParser unbufferedParser = DocumentParser.builder().unbuffered(true).build();
+    final List<String> actual = new ArrayList<>();
+    assertFalse(unbufferedParser.validate(
+        new FileInputStream("src/test/resources/badmarkdown.md"),
+        (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine)));
+    assertEquals(expected, actual);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"```\n", "# a", "| a |\n|---|\n", "```\ncode\n"})
+  void unbufferedErrors(String text) throws IOException {
+    final byte[] document = text.getBytes(StandardCharsets.UTF_8);
+    final List<String> expected = new ArrayList<>();
+    assertFalse(new DocumentParser().validate(new ByteArrayInputStream(document),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg)));
+
+    final DocumentParser unbufferedParser = DocumentParser.builder().unbuffered(true).build();
+    final List<String> actual = new ArrayList<>();
+    assertFalse(unbufferedParser.validate(new ByteArrayInputStream(document),
+        (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine + " " + msg)));
+    assertEquals(expected, actual);
+    assertTrue(actual.stream().anyMatch(msg -> msg.contains("'<EOF>'")));
+  }
+
+  @ParameterizedTest
+  @CsvSource({"MARKDOWN_LEXER,src/test/resources/md2orchestra-proto.md",
+      "MARKDOWN_LEXER,src/test/resources/badmarkdown.md",
+      "MARKDOWN_LEXER,src/test/resources/documentwithimport.md",
+      "HAND_CODED,src/test/resources/md2orchestra-proto.md",
+      "HAND_CODED,src/test/resources/badmarkdown.md"})
+  void mapped(DocumentParser.LexerBackend backend, String fileName) throws IOException {
+    final DocumentParser backendParser = DocumentParser.builder().lexerBackend(backend).build();
+    final List<String> expected = new ArrayList<>();
+    backendParser.parse(new FileInputStream(fileName), c -> expected.add(describe(c)),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg),
+        Path.of(fileName).toAbsolutePath().getParent());
+
+    final List<String> actual = new ArrayList<>();
+    backendParser.parse(Path.of(fileName), c -> actual.add(describe(c)),
+        (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine + " " + msg));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void mappedFileChanged(@TempDir Path dir) throws IOException {
+    final Path path = dir.resolve("changed.md");
+    final String text = "# Heading\n\nOne line\n\nFirst line\nsecond line\n";
+    Files.writeString(path, text);
+    final List<Documentation> documentation = new ArrayList<>();
+    final Consumer<GraphContext> consumer = c -> {
+      if (c instanceof Documentation) {
+        documentation.add((Documentation) c);
+      }
+    };
+    assertTrue(parser.parse(path, consumer, null));
+    try (DocumentIterator iterator = parser.open(path, null)) {
+      iterator.forEachRemaining(consumer);
+    }
+    assertEquals(2, documentation.size());
+
+    // text delivered from a mapped file does not change with the file
+    Files.writeString(path, text.toUpperCase());
+    Files.writeString(path, "");
+    for (final Documentation d : documentation) {
+      assertEquals("One line\n\nFirst line second line", d.getDocumentation());
+    }
+  }
+
+  @Test
+  void parseAll() throws Exception {
+    final List<Path> paths = List.of(Path.of("src/test/resources/md2orchestra-proto.md"),
+        Path.of("src/test/resources/badmarkdown.md"),
+        Path.of("src/test/resources/documentwithimport.md"),
+        Path.of("src/test/resources/missing.md"));
+    final Map<Path, List<String>> expected = new HashMap<>();
+    for (final Path path : paths.subList(0, 3)) {
+      final List<String> events = new ArrayList<>();
+      parser.parse(new FileInputStream(path.toFile()), c -> events.add(describe(c)), null,
+          path.getParent());
+      expected.put(path, events);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final DocumentParser concurrentParser = DocumentParser.builder().executor(executor).build();
+      final Map<Path, List<String>> actual = new ConcurrentHashMap<>();
+      final List<ParseResult> results = concurrentParser.parseAll(paths, path -> {
+        final List<String> events = new ArrayList<>();
+        actual.put(path, events);
+        return c -> events.add(describe(c));
+      });
+      assertEquals(4, results.size());
+      assertTrue(results.get(0).isSuccessful());
+      assertFalse(results.get(1).isSuccessful());
+      assertFalse(results.get(1).getErrors().isEmpty());
+      assertTrue(results.get(2).isSuccessful());
+      assertFalse(results.get(3).isSuccessful());
+      assertTrue(results.get(3).getException() instanceof IOException);
+      results.forEach(out::println);
+      for (final Path path : paths.subList(0, 3)) {
+        assertEquals(expected.get(path), actual.get(path));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @ParameterizedTest
+  @CsvSource({"src/test/resources/md2orchestra-proto.md,8",
+      "src/test/resources/documentwithimport.md,100"})
+  void sectioned(String fileName, int repeat) throws IOException {
+    final String text = Files.readString(Path.of(fileName)) + "\n";
+    final byte[] document = text.repeat(repeat).getBytes(StandardCharsets.UTF_8);
+    final Path importPath = Path.of("src", "test", "resources");
+    final CommonTokenStream tokenStream = new CommonTokenStream(
+        new MarkdownLexer(CharStreams.fromStream(new ByteArrayInputStream(document))));
+    tokenStream.fill();
+    assertTrue(DocumentParser
+        .sectionStarts(tokenStream.getTokens(), DocumentParser.MIN_SECTION_TOKENS).size() > 1);
+    final List<String> expected = new ArrayList<>();
+    assertTrue(parser.parse(new ByteArrayInputStream(document), c -> expected.add(describe(c)),
+        null, importPath));
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final DocumentParser sectionedParser =
+          DocumentParser.builder().sectioned(true).executor(executor).build();
+      assertTrue(sectionedParser.isSectioned());
+      final List<String> actual = new ArrayList<>();
+      assertTrue(sectionedParser.parse(new ByteArrayInputStream(document),
+          c -> actual.add(describe(c)), null, importPath));
+      assertEquals(expected, actual);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"|x|\n|--|\n\n\n", "| a |\n|---|\n\n", "```\n", "text\n|--|\n"})
+  void sectionedAfterErrors(String malformed) throws IOException {
+    final StringBuilder sb = new StringBuilder("# Top\n\n");
+    for (int i = 0; i < 300; i++) {
+      sb.append("para ").append(i).append("\n\n");
+    }
+    final String section = sb.append(malformed).append("# Next\n\n#### Side\n\n").toString();
+    final byte[] document = section.repeat(4).getBytes(StandardCharsets.UTF_8);
+    final List<String> expected = new ArrayList<>();
+    assertFalse(parser.parse(new ByteArrayInputStream(document), c -> expected.add(describe(c)),
+        (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg),
+        null));
+
+    final DocumentParser sectionedParser = DocumentParser.builder().sectioned(true).build();
+    final List<String> actual = new ArrayList<>();
+    assertFalse(sectionedParser.parse(new ByteArrayInputStream(document),
+        c -> actual.add(describe(c)),
+        (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine + " " + msg),
+        null));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void sectionedErrorOrder() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for (int s = 0; s < 3; s++) {
+      // a parser error, then a lexer error in the same section
+      sb.append("# Section ").append(s).append("\n\ntext\n|--|\n\n");
+      for (int i = 0; i < 300; i++) {
+        sb.append("para ").append(i).append("\n\n");
+      }
+      sb.append("\r\r\n\n");
+    }
+    final byte[] document = sb.toString().getBytes(StandardCharsets.UTF_8);
+    final List<String> expected = new ArrayList<>();
+    assertFalse(parser.parse(new ByteArrayInputStream(document), c -> {
+    }, (line, charPositionInLine, msg) -> expected.add(line + ":" + charPositionInLine + " " + msg),
+        null));
+    assertEquals(6, expected.size());
+
+    final DocumentParser sectionedParser = DocumentParser.builder().sectioned(true).build();
+    final List<String> actual = new ArrayList<>();
+    assertFalse(sectionedParser.parse(new ByteArrayInputStream(document), c -> {
+    }, (line, charPositionInLine, msg) -> actual.add(line + ":" + charPositionInLine + " " + msg),
+        null));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void sectionStarts() {
+    final String text = "# A\n\npara\n\n```\n# not a heading\n```\n\n## B\ntext\n\n### C\n";
+    final CommonTokenStream tokenStream =
+        new CommonTokenStream(new MarkdownLexer(CharStreams.fromString(text)));
+    tokenStream.fill();
+    assertEquals(List.of(0, 10), DocumentParser.sectionStarts(tokenStream.getTokens(), 0));
+  }
+
+  static String describe(GraphContext graphContext) {
+    final StringBuilder sb = new StringBuilder(graphContext.getClass().getSimpleName());
+    final Context parent = graphContext.getParent();
+    if (parent != null) {
+      sb.append(" parent=").append(String.join(" ", parent.getKeys()));
+    }
+    if (graphContext instanceof DocumentContext) {
+      final DocumentContext documentContext = (DocumentContext) graphContext;
+      sb.append(" line=").append(documentContext.getLine()).append(" pos=")
+          .append(documentContext.getCharPositionInLine()).append(" start=")
+          .append(documentContext.getStartOffset()).append(" end=")
+          .append(documentContext.getEndOffset());
+    }
+    if (graphContext instanceof Context) {
+      final Context context = (Context) graphContext;
+      sb.append(" level=").append(context.getLevel()).append(" keys=")
+          .append(String.join("|", context.getKeys()));
+    } else if (graphContext instanceof Documentation) {
+      final Documentation documentation = (Documentation) graphContext;
+      sb.append(" format=").append(documentation.getFormat()).append(" text=")
+          .append(documentation.getDocumentation());
+    } else if (graphContext instanceof Detail) {
+      sb.append(" properties=").append(((Detail) graphContext).getProperties());
+    } else if (graphContext instanceof DetailTable) {
+      for (final DetailTable.TableRow row : ((DetailTable) graphContext).rows()) {
+        sb.append(" row=").append(row.getLine()).append(row.getProperties());
+      }
+    }
+    return sb.toString();
+  }
+
 }
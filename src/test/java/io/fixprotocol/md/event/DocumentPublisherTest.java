@@ -0,0 +1,172 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class DocumentPublisherTest {
+
+  private static class TestSubscriber implements Flow.Subscriber<GraphContext> {
+    final CountDownLatch done = new CountDownLatch(1);
+    final List<String> events = new ArrayList<>();
+    volatile boolean completed = false;
+    volatile Throwable error;
+    final long initialRequest;
+    final boolean requestMore;
+    volatile Flow.Subscription subscription;
+
+    TestSubscriber(long initialRequest, boolean requestMore) {
+      this.initialRequest = initialRequest;
+      this.requestMore = requestMore;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      done.countDown();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done.countDown();
+    }
+
+    @Override
+    public void onNext(GraphContext item) {
+      synchronized (events) {
+        events.add(DocumentParserTest.describe(item));
+      }
+      if (requestMore) {
+        subscription.request(1);
+      }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initialRequest);
+    }
+
+    int received() {
+      synchronized (events) {
+        return events.size();
+      }
+    }
+  }
+
+  private static final String FILE_NAME = "src/test/resources/md2orchestra-proto.md";
+
+  private static void awaitReceived(TestSubscriber subscriber, int count)
+      throws InterruptedException {
+    // the first events of a parse may be slow while recognizers warm up
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (subscriber.received() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  void oneAtATime() throws Exception {
+    final DocumentParser parser = new DocumentParser();
+    final List<String> expected = new ArrayList<>();
+    parser.parse(new FileInputStream(FILE_NAME), c -> expected.add(DocumentParserTest.describe(c)));
+
+    final TestSubscriber subscriber = new TestSubscriber(1, true);
+    parser.publisher(Path.of(FILE_NAME), null).subscribe(subscriber);
+    assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+    assertTrue(subscriber.completed);
+    assertEquals(expected, subscriber.events);
+  }
+
+  @Test
+  void backpressure() throws Exception {
+    final DocumentParser parser = DocumentParser.builder().streaming(true).build();
+    final TestSubscriber subscriber = new TestSubscriber(3, false);
+    parser.publisher(Path.of(FILE_NAME), null).subscribe(subscriber);
+    awaitReceived(subscriber, 3);
+    Thread.sleep(200);
+    assertEquals(3, subscriber.received());
+    subscriber.subscription.request(2);
+    awaitReceived(subscriber, 5);
+    Thread.sleep(200);
+    assertEquals(5, subscriber.received());
+    subscriber.subscription.cancel();
+    assertFalse(subscriber.done.await(200, TimeUnit.MILLISECONDS));
+    assertEquals(5, subscriber.received());
+  }
+
+  @Test
+  void parseAfterCancel() throws IOException {
+    final DocumentParser parser = DocumentParser.builder().streaming(true)
+        .pool(new ParserPool(1)).executor(Runnable::run).build();
+    // cancel, then throw, while events are delivered; the parse runs on this thread
+    for (final boolean fail : new boolean[] {false, true}) {
+      final TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE, false) {
+        @Override
+        public void onNext(GraphContext item) {
+          super.onNext(item);
+          if (fail) {
+            throw new IllegalStateException("subscriber failed");
+          }
+          subscription.cancel();
+        }
+      };
+      parser.publisher(Path.of(FILE_NAME), null).subscribe(subscriber);
+      assertEquals(1, subscriber.received());
+      assertEquals(1, parser.getPool().getIdleCount());
+
+      // the returned parser reports errors in a malformed document
+      final List<String> errors = new ArrayList<>();
+      assertFalse(parser.parse(
+          new ByteArrayInputStream("```\n".getBytes(StandardCharsets.UTF_8)), c -> {
+          }, (line, charPositionInLine, msg) -> errors.add(msg), null));
+      assertFalse(errors.isEmpty());
+    }
+  }
+
+  @Test
+  void invalidRequest() throws Exception {
+    final TestSubscriber subscriber = new TestSubscriber(0, false);
+    new DocumentParser().publisher(Path.of(FILE_NAME), null).subscribe(subscriber);
+    assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+  }
+
+  @Test
+  void missingFile() throws Exception {
+    final TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE, false);
+    new DocumentParser().publisher(Path.of("src/test/resources/nosuchfile.md"), null)
+        .subscribe(subscriber);
+    assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+    assertTrue(subscriber.error instanceof NoSuchFileException);
+  }
+
+  @Test
+  void singleSubscriber() throws IOException, InterruptedException {
+    try (FileInputStream inputStream = new FileInputStream(FILE_NAME)) {
+      final Flow.Publisher<GraphContext> publisher =
+          new DocumentParser().publisher(inputStream, null, null);
+      final TestSubscriber first = new TestSubscriber(Long.MAX_VALUE, false);
+      publisher.subscribe(first);
+      final TestSubscriber second = new TestSubscriber(Long.MAX_VALUE, false);
+      publisher.subscribe(second);
+      assertTrue(first.done.await(10, TimeUnit.SECONDS));
+      assertTrue(first.completed);
+      assertTrue(second.done.await(10, TimeUnit.SECONDS));
+      assertTrue(second.error instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EventBatcherTest {
+
+  private static final Object END = new Object();
+  private static PrintStream out;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/EventBatcherTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  @Test
+  void batches() throws IOException {
+    final List<String> expected = new ArrayList<>();
+    new DocumentParser().parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> expected.add(DocumentParserTest.describe(c)));
+
+    final List<String> actual = new ArrayList<>();
+    final List<Integer> sizes = new ArrayList<>();
+    assertTrue(new DocumentParser().parseBatched(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"), batch -> {
+          sizes.add(batch.size());
+          batch.forEach(c -> actual.add(DocumentParserTest.describe(c)));
+        }, 4, EventBatcher.NO_SECTIONS, null, null));
+    assertEquals(expected, actual);
+    for (int i = 0; i < sizes.size() - 1; i++) {
+      assertEquals(4, sizes.get(i));
+    }
+  }
+
+  @Test
+  void sections() throws IOException {
+    final List<List<GraphContext>> batches = new ArrayList<>();
+    new DocumentParser().parseBatched(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        batch -> batches.add(List.copyOf(batch)), 1000, 2, null, null);
+    assertTrue(batches.size() > 1);
+    for (final List<GraphContext> batch : batches) {
+      for (int i = 1; i < batch.size(); i++) {
+        final GraphContext c = batch.get(i);
+        assertTrue(!(c instanceof Context) || ((Context) c).getLevel() > 2);
+      }
+    }
+  }
+
+  @Test
+  void invalid() {
+    final Consumer<List<GraphContext>> consumer = batch -> {
+    };
+    assertThrows(IllegalArgumentException.class, () -> new EventBatcher(consumer, 0, 0));
+    assertThrows(IllegalArgumentException.class, () -> new EventBatcher(consumer, 1, -1));
+  }
+
+  /**
+   * Hands events to another thread through a queue, one by one or in batches
+   *
+   * Events are parsed once and then replayed so that dispatch is not obscured by parsing.
+   */
+  @Test
+  void dispatch() throws Exception {
+    final String text = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final byte[] bytes = text.repeat(100).getBytes(StandardCharsets.UTF_8);
+    final DocumentParser parser =
+        DocumentParser.builder().lexerBackend(DocumentParser.LexerBackend.HAND_CODED).build();
+    final List<GraphContext> events = new ArrayList<>();
+    final long parseStart = System.nanoTime();
+    parser.parse(new ByteArrayInputStream(bytes), events::add);
+    final long parse = System.nanoTime() - parseStart;
+    final int repeat = 50;
+    final int rounds = 5;
+
+    long perEvent = Long.MAX_VALUE;
+    long batched = Long.MAX_VALUE;
+    for (int round = 0; round < rounds; round++) {
+      long start = System.nanoTime();
+      assertEquals(events.size() * repeat, dispatch(events, repeat, queue -> queue::add));
+      perEvent = Math.min(perEvent, System.nanoTime() - start);
+      start = System.nanoTime();
+      assertEquals(events.size() * repeat, dispatch(events, repeat, queue -> new EventBatcher(
+          batch -> queue.add(List.copyOf(batch)), 256, EventBatcher.NO_SECTIONS)));
+      batched = Math.min(batched, System.nanoTime() - start);
+    }
+    out.format("Parsed %d events in %d ms%n", events.size(), parse / 1000000);
+    out.format("Dispatched %d events to a queue drained by another thread, best of %d rounds%n",
+        events.size() * repeat, rounds);
+    out.format("Per-event dispatch %d ms%n", perEvent / 1000000);
+    out.format("Batched dispatch of 256 %d ms%n", batched / 1000000);
+  }
+
+  private static int dispatch(List<GraphContext> events, int repeat,
+      Function<BlockingQueue<Object>, Consumer<GraphContext>> consumerFactory)
+      throws InterruptedException {
+    final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    final int[] count = new int[1];
+    final Thread drainer = new Thread(() -> {
+      try {
+        Object item;
+        while ((item = queue.take()) != END) {
+          count[0] += item instanceof List ? ((List<?>) item).size() : 1;
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    drainer.start();
+    final Consumer<GraphContext> consumer = consumerFactory.apply(queue);
+    for (int i = 0; i < repeat; i++) {
+      events.forEach(consumer);
+    }
+    if (consumer instanceof EventBatcher) {
+      ((EventBatcher) consumer).flush();
+    }
+    queue.add(END);
+    drainer.join();
+    return count[0];
+  }
+}
@@ -0,0 +1,78 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EventFilterTest {
+
+  private static final EventFilter MESSAGE_TABLES = EventFilter.types(DetailTable.class)
+      .and(EventFilter.under(c -> "Message".equals(c.getKey(0))));
+
+  private byte[] bytes;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    final String text = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+    bytes = (text + "\n").repeat(8).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void messageTables() throws IOException {
+    final List<String> expected = filterAfter(MESSAGE_TABLES);
+    assertFalse(expected.isEmpty());
+    assertTrue(expected.stream().allMatch(e -> e.startsWith("DetailTableImpl parent=Message")));
+    assertEquals(expected, parse(DocumentParser.builder().eventFilter(MESSAGE_TABLES).build()));
+    assertEquals(expected, parse(
+        DocumentParser.builder().eventFilter(MESSAGE_TABLES).streaming(true).build()));
+    assertEquals(expected, parse(
+        DocumentParser.builder().eventFilter(MESSAGE_TABLES).sectioned(true).build()));
+
+    final List<String> actual = new ArrayList<>();
+    try (DocumentIterator iterator = DocumentParser.builder().eventFilter(MESSAGE_TABLES)
+        .build().open(new ByteArrayInputStream(bytes), null, null)) {
+      iterator.forEachRemaining(c -> actual.add(DocumentParserTest.describe(c)));
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void headingsAndDocumentation() throws IOException {
+    final EventFilter filter = EventFilter.types(Context.class, Documentation.class);
+    assertEquals(filterAfter(filter), parse(DocumentParser.builder().eventFilter(filter).build()));
+  }
+
+  @Test
+  void nestedHeadings() throws IOException {
+    // level 3 headings and their content under a level 2 heading that starts with "Group"
+    final EventFilter filter = EventFilter.under(c -> "Group".equals(c.getKey(0)));
+    final List<String> expected = filterAfter(filter);
+    assertTrue(expected.stream().anyMatch(e -> e.contains("keys=Codeset|Sides")));
+    assertEquals(expected, parse(DocumentParser.builder().eventFilter(filter).build()));
+  }
+
+  private List<String> filterAfter(EventFilter filter) throws IOException {
+    final List<String> events = new ArrayList<>();
+    new DocumentParser().parse(new ByteArrayInputStream(bytes), c -> {
+      if (filter.accepts(c)) {
+        events.add(DocumentParserTest.describe(c));
+      }
+    });
+    return events;
+  }
+
+  private List<String> parse(DocumentParser parser) throws IOException {
+    final List<String> events = new ArrayList<>();
+    parser.parse(new ByteArrayInputStream(bytes), c -> events.add(DocumentParserTest.describe(c)));
+    return events;
+  }
+}
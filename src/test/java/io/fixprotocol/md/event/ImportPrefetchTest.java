@@ -0,0 +1,129 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ImportPrefetchTest {
+
+  private static final int IMPORTS = 100;
+  private static PrintStream out;
+
+  @TempDir
+  static Path dir;
+
+  private static Path document;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/ImportPrefetchTest.txt"));
+
+    final StringBuilder md = new StringBuilder("# Imports\n\n");
+    for (int i = 0; i < IMPORTS; i++) {
+      final StringBuilder xml = new StringBuilder("<root>\n");
+      for (int j = 0; j < 500; j++) {
+        xml.append("  <element id=\"").append(j).append("\">file ").append(i).append("</element>\n");
+      }
+      xml.append("  <part>").append(i).append("</part>\n</root>\n");
+      Files.writeString(dir.resolve("import" + i + ".xml"), xml);
+      md.append("## Section ").append(i).append("\n\n```xml import import").append(i)
+          .append(".xml from \"<part>\" to \"</part>\"\n```\n\n");
+    }
+    // a missing file falls back to the contents of the block
+    md.append("## Missing\n\n```xml import missing.xml\n<fallback/>\n```\n");
+    document = dir.resolve("imports.md");
+    Files.writeString(document, md);
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void sameEvents(boolean sectioned) throws IOException {
+    final List<String> expected = parse(DocumentParser.builder().sectioned(sectioned).build());
+    assertEquals(IMPORTS * 2 + 3, expected.size());
+    assertTrue(expected.stream().anyMatch(e -> e.startsWith("DocumentationImpl parent=Section 17 ")
+        && e.endsWith("format=xml text=  <part>17</part>")));
+    assertTrue(expected.stream().anyMatch(e -> e.startsWith("DocumentationImpl parent=Missing ")
+        && e.contains("format=xml text=<fallback/>")));
+    assertEquals(expected, parse(
+        DocumentParser.builder().sectioned(sectioned).prefetchImports(true).build()));
+  }
+
+  @Test
+  void documentWithImport() throws IOException {
+    final Path path = Path.of("src/test/resources/documentwithimport.md");
+    final List<String> expected = new ArrayList<>();
+    DocumentParser.builder().build().parse(path, c -> expected.add(DocumentParserTest.describe(c)),
+        null);
+    final List<String> actual = new ArrayList<>();
+    DocumentParser.builder().prefetchImports(true).build().parse(path,
+        c -> actual.add(DocumentParserTest.describe(c)), null);
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * A parse run by the executor of its parser does not wait for imports queued behind it
+   */
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void sameExecutor(boolean sectioned) {
+    final ExecutorService executor = Executors.newFixedThreadPool(1);
+    try {
+      final DocumentParser parser = DocumentParser.builder().prefetchImports(true)
+          .sectioned(sectioned).executor(executor).build();
+      final List<ParseResult> results = assertTimeoutPreemptively(Duration.ofSeconds(60),
+          () -> parser.parseAll(List.of(Path.of("src/test/resources/documentwithimport.md"),
+              document), path -> c -> {
+              }));
+      assertTrue(results.stream().allMatch(ParseResult::isSuccessful));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void benchmark() throws IOException {
+    final int rounds = 3;
+    long serial = Long.MAX_VALUE;
+    long prefetch = Long.MAX_VALUE;
+    for (int round = 0; round < rounds; round++) {
+      long start = System.nanoTime();
+      parse(DocumentParser.builder().build());
+      serial = Math.min(serial, System.nanoTime() - start);
+      start = System.nanoTime();
+      parse(DocumentParser.builder().prefetchImports(true).build());
+      prefetch = Math.min(prefetch, System.nanoTime() - start);
+    }
+    out.format("Parsed document with %d imports, best of %d rounds%n", IMPORTS, rounds);
+    out.format("Serial imports %d us%n", serial / 1000);
+    out.format("Prefetched imports %d us%n", prefetch / 1000);
+  }
+
+  private static List<String> parse(DocumentParser parser) throws IOException {
+    final List<String> events = new ArrayList<>();
+    parser.parse(document, c -> events.add(DocumentParserTest.describe(c)), null);
+    return events;
+  }
+}
@@ -0,0 +1,37 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JoinedTextTest {
+
+  @Test
+  void appendTo() throws IOException {
+    final JoinedText text = new JoinedText(
+        List.of(new JoinedText(List.of("one", "two"), " "), new StringBuilder("three")), "\n\n");
+    final StringWriter writer = new StringWriter();
+    text.appendTo(writer);
+    assertEquals("one two\n\nthree", writer.toString());
+  }
+
+  @Test
+  void charSequence() throws IOException {
+    final JoinedText text = new JoinedText(List.of("a", "b", "c"), ", ");
+    assertEquals(7, text.length());
+    assertEquals(',', text.charAt(1));
+    assertEquals("b, c", text.subSequence(3, 7).toString());
+    assertEquals("a, b, c", text.toString());
+    // parts are released once the text is built
+    final StringWriter writer = new StringWriter();
+    text.appendTo(writer);
+    assertEquals("a, b, c", writer.toString());
+  }
+
+  @Test
+  void empty() {
+    assertEquals("", new JoinedText(List.of(), " ").toString());
+  }
+}
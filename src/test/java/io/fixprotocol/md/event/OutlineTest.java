@@ -0,0 +1,65 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class OutlineTest {
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void sections(boolean sectioned) throws IOException {
+    final List<GraphContext> events = new ArrayList<>();
+    final Outline.Builder builder = new Outline.Builder(events::add);
+    DocumentParser.builder().sectioned(sectioned).build()
+        .parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"), builder);
+    final Outline outline = builder.build();
+
+    assertEquals(10, outline.getSections().size());
+    assertEquals(1, outline.getRoots().size());
+    assertTrue(outline.getPreamble().isEmpty());
+    assertEquals(6, outline.sections(2).size());
+    assertEquals(List.of(), outline.sections(4));
+
+    final Outline.Section parties = outline.section("Rules of Engagement", "Group Parties");
+    assertEquals("Parties", parties.getHeading().getKey(1));
+    assertEquals(List.of("Rules of Engagement", "Group Parties"), parties.getPath());
+    assertSame(outline.getRoots().get(0), parties.getParent());
+    assertTrue(parties.getEvents().stream().anyMatch(e -> e instanceof DetailTable));
+    final Outline.Section sides = parties.getChildren().get(0);
+    assertEquals(List.of("Rules of Engagement", "Group Parties", "Codeset Sides"), sides.getPath());
+    assertSame(sides, outline.section(sides.getPath()));
+    assertNull(outline.section("Group Parties"));
+
+    // a section ends before the next heading at the same or a higher level
+    final List<Outline.Section> level2 = outline.sections(2);
+    final int partiesIndex = level2.indexOf(parties);
+    assertEquals(level2.get(partiesIndex + 1).getStartOffset() - 1, parties.getEndOffset());
+    assertEquals(parties.getEndOffset(), sides.getEndOffset());
+    assertEquals(outline.getRoots().get(0).getEndOffset(),
+        level2.get(level2.size() - 1).getEndOffset());
+
+    // every event is indexed under its heading and found by position
+    int count = 0;
+    for (final GraphContext event : events) {
+      final Context heading = event instanceof Context ? (Context) event : event.getParent();
+      final int start = ((DocumentContext) event).getStartOffset();
+      if (start != DocumentContext.UNKNOWN_POSITION) {
+        assertSame(heading, outline.sectionAt(start).getHeading());
+        count++;
+      }
+      if (!(event instanceof Context)) {
+        assertTrue(outline.getSections().stream().anyMatch(
+            s -> s.getHeading() == heading && s.getEvents().contains(event)));
+      }
+    }
+    assertTrue(count > 0);
+  }
+}
@@ -0,0 +1,130 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParsedDocumentTest {
+
+  private DocumentParser parser;
+  private String text;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    parser = new DocumentParser();
+    text = Files.readString(Path.of("src/test/resources/md2orchestra-proto.md"));
+  }
+
+  @Test
+  void parseIncremental() throws IOException {
+    final ParsedDocument document = parser.parseIncremental(text, null);
+    assertTrue(document.isSuccessful());
+    assertEquals(parseAll(text), describe(document));
+  }
+
+  @Test
+  void editParagraph() throws IOException {
+    final ParsedDocument document = parser.parseIncremental(text, null);
+    final int offset = text.indexOf("connects");
+    final DocumentUpdate update = parser.reparse(document, offset, 0, "xyz");
+    final String edited = update.getDocument().getText();
+    assertEquals(text.substring(0, offset) + "xyz" + text.substring(offset), edited);
+    assertEquals(parseAll(edited), describe(update.getDocument()));
+    assertFalse(update.getAdded().isEmpty());
+    assertEquals(update.getAdded().size(), update.getRemoved().size());
+    assertTrue(update.getAdded().size() < document.getContexts().size() / 2);
+  }
+
+  @Test
+  void editHeadings() throws IOException {
+    ParsedDocument document = parser.parseIncremental(text, null);
+
+    // demote a level 2 heading so that later contexts change parents
+    int offset = text.indexOf("\n## ") + 1;
+    DocumentUpdate update = parser.reparse(document, offset, 0, "#");
+    document = update.getDocument();
+    assertEquals(parseAll(document.getText()), describe(document));
+
+    // remove a heading line altogether
+    offset = document.getText().indexOf("\n### ") + 1;
+    final int length = document.getText().indexOf('\n', offset) + 1 - offset;
+    update = parser.reparse(document, offset, length, "");
+    document = update.getDocument();
+    assertEquals(parseAll(document.getText()), describe(document));
+
+    // add a level 1 heading
+    offset = document.getText().indexOf("\n## ") + 1;
+    update = parser.reparse(document, offset, 0, "# Inserted\n\n");
+    document = update.getDocument();
+    assertEquals(parseAll(document.getText()), describe(document));
+    assertFalse(update.getChanged().isEmpty());
+  }
+
+  @Test
+  void editFence() throws IOException {
+    ParsedDocument document = parser.parseIncremental(text, null);
+    final int offset = text.indexOf("\n## ") + 1;
+
+    // an unclosed fence changes the meaning of the rest of the document
+    DocumentUpdate update = parser.reparse(document, offset, 0, "```\n");
+    document = update.getDocument();
+    assertEquals(parseAll(document.getText()), describe(document));
+
+    update = parser.reparse(document, offset, 4, "");
+    document = update.getDocument();
+    assertEquals(text, document.getText());
+    assertEquals(parseAll(text), describe(document));
+  }
+
+  @Test
+  void editClosesLiteral() {
+    final String markdown =
+        "# A\n\nsome `open text\n\n## B\n\nparagraph\n\n## C\n\nmore\n\n## D\n\nend\n";
+    final ParsedDocument document = parser.parseIncremental(markdown, null);
+
+    // a backtick inserted two segments later closes a literal that spans headings
+    final int offset = markdown.indexOf("more");
+    final DocumentUpdate update = parser.reparse(document, offset, 0, "```\n");
+    final ParsedDocument expected = parser.parseIncremental(update.getDocument().getText(), null);
+    assertEquals(describe(expected), describe(update.getDocument()));
+    assertEquals(describeErrors(expected), describeErrors(update.getDocument()));
+
+    final DocumentUpdate reverted = parser.reparse(update.getDocument(), offset, 4, "");
+    assertEquals(describe(document), describe(reverted.getDocument()));
+    assertEquals(describeErrors(parser.parseIncremental(markdown, null)),
+        describeErrors(reverted.getDocument()));
+  }
+
+  @Test
+  void superseded() {
+    final ParsedDocument document = parser.parseIncremental(text, null);
+    parser.reparse(document, 0, 0, "x");
+    assertThrows(IllegalStateException.class, () -> parser.reparse(document, 0, 0, "y"));
+  }
+
+  private List<String> parseAll(String markdown) throws IOException {
+    final List<String> events = new ArrayList<>();
+    parser.parse(new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)),
+        c -> events.add(DocumentParserTest.describe(c)));
+    return events;
+  }
+
+  private static List<String> describeErrors(ParsedDocument document) {
+    return document.getErrors().stream()
+        .map(e -> e.getLine() + ":" + e.getCharPositionInLine() + " " + e.getMessage())
+        .collect(Collectors.toList());
+  }
+
+  private static List<String> describe(ParsedDocument document) {
+    return document.getContexts().stream().map(DocumentParserTest::describe)
+        .collect(Collectors.toList());
+  }
+}
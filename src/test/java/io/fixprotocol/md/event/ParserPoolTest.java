@@ -0,0 +1,115 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class ParserPoolTest {
+
+  @Test
+  void reuse() throws IOException {
+    final ParserPool pool = new ParserPool(2);
+    final DocumentParser parser = DocumentParser.builder().pool(pool).build();
+    assertEquals(0, pool.getIdleCount());
+    for (int i = 0; i < 3; i++) {
+      assertTrue(parser.parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+          c -> {
+          }));
+      assertEquals(1, pool.getIdleCount());
+    }
+  }
+
+  @Test
+  void closeTwice() {
+    final ParserPool pool = new ParserPool(2);
+    final ParserPool.Lease lease = pool.acquire();
+    lease.close();
+    lease.close();
+    assertEquals(1, pool.getIdleCount());
+    final ParserPool.Lease first = pool.acquire();
+    final ParserPool.Lease second = pool.acquire();
+    assertSame(lease, first);
+    assertNotSame(first, second);
+    first.close();
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  void reuseAfterException() throws IOException {
+    final DocumentParser failing =
+        DocumentParser.builder().pool(new ParserPool(1)).streaming(true).build();
+    final DocumentParser parser = DocumentParser.builder().pool(failing.getPool()).build();
+    assertThrows(IllegalStateException.class,
+        () -> failing.parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"), c -> {
+          throw new IllegalStateException("consumer failed");
+        }));
+    assertEquals(1, failing.getPool().getIdleCount());
+
+    // a reused lease reports a syntax error as a fresh one does
+    final List<String> expected = new ArrayList<>();
+    final List<String> actual = new ArrayList<>();
+    assertFalse(DocumentParser.builder().pool(new ParserPool(0)).build()
+        .parse(stream("```\n"), c -> {
+        }, (line, charPositionInLine, msg) -> expected.add(msg), null));
+    assertFalse(parser.parse(stream("```\n"), c -> {
+    }, (line, charPositionInLine, msg) -> actual.add(msg), null));
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, actual);
+  }
+
+  private static ByteArrayInputStream stream(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void warmUpAndClear() throws IOException {
+    final ParserPool pool = new ParserPool();
+    pool.warmUp(new FileInputStream("src/test/resources/md2orchestra-proto.md"));
+    assertTrue(pool.getDfaStateCount() > 0);
+    pool.clearDfaCache();
+    assertEquals(0, pool.getIdleCount());
+    assertEquals(0, pool.getDfaStateCount());
+
+    final List<String> events = new ArrayList<>();
+    assertTrue(DocumentParser.builder().pool(pool).build().parse(
+        new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> events.add(DocumentParserTest.describe(c))));
+    assertFalse(events.isEmpty());
+  }
+
+  @Test
+  void concurrent() throws Exception {
+    final List<String> expected = new ArrayList<>();
+    new DocumentParser().parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+        c -> expected.add(DocumentParserTest.describe(c)));
+
+    final DocumentParser parser = DocumentParser.builder().pool(new ParserPool(2)).build();
+    final Callable<List<String>> task = () -> {
+      final List<String> actual = new ArrayList<>();
+      parser.parse(new FileInputStream("src/test/resources/md2orchestra-proto.md"),
+          c -> actual.add(DocumentParserTest.describe(c)));
+      return actual;
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<List<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(task));
+      }
+      for (final Future<List<String>> future : futures) {
+        assertEquals(expected, future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package io.fixprotocol.md.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.md.event.DocumentParser.TableEvents;
+
+class TableEventsTest {
+
+  private static byte[] corpus;
+  private static PrintStream out;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/TableEventsTest.txt"));
+    final StringBuilder sb = new StringBuilder();
+    for (int t = 0; t < 200; t++) {
+      sb.append("## Message Table").append(t).append("\n\n");
+      sb.append("| Name | Tag | Presence | Type | Description |\n");
+      sb.append("|------|----:|----------|------|-------------|\n");
+      for (int r = 0; r < 50; r++) {
+        sb.append("| Field").append(r).append(" | ").append(1000 + r)
+            .append(" | required | String | Value of field ").append(r).append(" |\n");
+      }
+      sb.append('\n');
+    }
+    corpus = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"ROWS", "TABLES", "BOTH"})
+  void sameAsFiltered(String name) throws IOException {
+    final TableEvents tableEvents = TableEvents.valueOf(name);
+    final byte[] bytes = DocumentParserTest.class.getResourceAsStream("/md2orchestra-proto.md")
+        .readAllBytes();
+    final Predicate<GraphContext> wanted = c -> tableEvents == TableEvents.BOTH
+        || (tableEvents == TableEvents.ROWS ? !(c instanceof DetailTable)
+            : !(c instanceof Detail));
+    final List<String> expected = new ArrayList<>();
+    new DocumentParser().parse(new ByteArrayInputStream(bytes), c -> {
+      if (wanted.test(c)) {
+        expected.add(DocumentParserTest.describe(c));
+      }
+    });
+
+    for (final boolean sectioned : new boolean[] {false, true}) {
+      final DocumentParser parser =
+          DocumentParser.builder().tableEvents(tableEvents).sectioned(sectioned).build();
+      assertEquals(tableEvents, parser.getTableEvents());
+      final List<String> actual = new ArrayList<>();
+      parser.parse(new ByteArrayInputStream(bytes), c -> actual.add(DocumentParserTest.describe(c)));
+      assertEquals(expected, actual);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"ROWS", "TABLES", "BOTH"})
+  void escapedPipe(String name) throws IOException {
+    final TableEvents tableEvents = TableEvents.valueOf(name);
+    final String text = "| Name | Note |\n|---|---|\n| x \\| | a \\| |\n";
+    final List<String> properties = new ArrayList<>();
+    DocumentParser.builder().tableEvents(tableEvents).build()
+        .parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), c -> {
+          if (c instanceof Detail) {
+            properties.add("row " + ((Detail) c).getProperties());
+          } else if (c instanceof DetailTable) {
+            ((DetailTable) c).rows().forEach(r -> properties.add("table " + r.getProperties()));
+          }
+        });
+    final List<String> expected = new ArrayList<>();
+    if (tableEvents != TableEvents.TABLES) {
+      // a detail is trimmed of pipes at both ends
+      expected.add("row [name=x \\, note=a \\]");
+    }
+    if (tableEvents != TableEvents.ROWS) {
+      expected.add("table [name=x \\|, note=a \\|]");
+    }
+    assertEquals(expected, properties);
+  }
+
+  @Test
+  void withFilter() throws IOException {
+    final DocumentParser parser = DocumentParser.builder().tableEvents(TableEvents.TABLES)
+        .eventFilter(EventFilter.types(DetailTable.class, Detail.class)).build();
+    final List<GraphContext> events = new ArrayList<>();
+    parser.parse(new ByteArrayInputStream(corpus), events::add);
+    assertEquals(200, events.size());
+    assertTrue(events.stream().allMatch(c -> c instanceof DetailTable));
+  }
+
+  /**
+   * Bytes allocated by the parsing thread for each selection of table events
+   *
+   * The thread management bean is reached reflectively since this module does not read
+   * java.management. The measurement is skipped if the bean is not available.
+   */
+  @Test
+  void allocation() throws Exception {
+    final Object bean;
+    final Method allocatedBytes;
+    try {
+      bean = Class.forName("java.lang.management.ManagementFactory")
+          .getMethod("getThreadMXBean").invoke(null);
+      allocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+          .getMethod("getThreadAllocatedBytes", long.class);
+    } catch (final ReflectiveOperationException e) {
+      out.println("Thread allocation is not measurable: " + e);
+      return;
+    }
+    final long threadId = Thread.currentThread().getId();
+    out.format("Parsed %d tables of 50 rows and 5 columns%n", 200);
+    for (final TableEvents tableEvents : TableEvents.values()) {
+      final DocumentParser parser = DocumentParser.builder().tableEvents(tableEvents)
+          .lexerBackend(DocumentParser.LexerBackend.HAND_CODED).build();
+      long allocated = Long.MAX_VALUE;
+      for (int round = 0; round < 5; round++) {
+        final int[] count = new int[1];
+        final long before = (long) allocatedBytes.invoke(bean, threadId);
+        parser.parse(new ByteArrayInputStream(corpus), c -> count[0]++);
+        allocated = Math.min(allocated, (long) allocatedBytes.invoke(bean, threadId) - before);
+        assertTrue(count[0] > 0);
+      }
+      out.format("%-6s allocated %,d KB%n", tableEvents, allocated / 1024);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package io.fixprotocol.md.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BytePatternTest {
+
+  private static PrintStream out;
+
+  @TempDir
+  Path dir;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/BytePatternTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  // former implementation, retained for comparison
+  private static long readLineStart(RandomAccessFile randomAccessFile, String searchText)
+      throws IOException {
+    randomAccessFile.seek(0);
+    String lineText = "";
+    do {
+      final long position = randomAccessFile.getFilePointer();
+      lineText = randomAccessFile.readLine();
+      if (lineText != null && lineText.contains(searchText)) {
+        return position;
+      }
+    } while (lineText != null);
+    return -1;
+  }
+
+  private static long readLineEnd(RandomAccessFile randomAccessFile, String searchText,
+      long startPosition) throws IOException {
+    randomAccessFile.seek(startPosition);
+    String lineText = "";
+    do {
+      final long position = randomAccessFile.getFilePointer();
+      lineText = randomAccessFile.readLine();
+      if (lineText != null && lineText.contains(searchText)) {
+        return position + lineText.length();
+      }
+    } while (lineText != null);
+    return -1;
+  }
+
+  private static String randomText(Random random, String alphabet, int maxLength) {
+    final StringBuilder sb = new StringBuilder();
+    final int length = random.nextInt(maxLength);
+    for (int j = 0; j < length; j++) {
+      sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  void indexOf() {
+    final ByteBuffer buffer = ByteBuffer.wrap("abcabdab".getBytes(StandardCharsets.UTF_8));
+    assertEquals(3, new BytePattern("abd").indexOf(buffer, 0));
+    assertEquals(6, new BytePattern("ab").indexOf(buffer, 4));
+    assertEquals(-1, new BytePattern("abc").indexOf(buffer, 1));
+    assertEquals(-1, new BytePattern("abdabx").indexOf(buffer, 0));
+    assertEquals(2, new BytePattern("").indexOf(buffer, 2));
+  }
+
+  @Test
+  void sameAsReadLine() throws IOException {
+    final Random random = new Random(29);
+    final Path path = dir.resolve("search.txt");
+    final FileImport fileImport = new FileImport();
+    for (int i = 0; i < 300; i++) {
+      final String text = randomText(random, "abc\n\r", 40);
+      final String start = randomText(random, "abc", 3);
+      final String end = randomText(random, "abc", 3);
+      Files.writeString(path, text, StandardCharsets.US_ASCII);
+      long expectedStart;
+      long expectedEnd;
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(path.toFile(), "r")) {
+        expectedStart = readLineStart(randomAccessFile, start);
+        if (expectedStart == -1) {
+          expectedStart = 0;
+        }
+        expectedEnd = readLineEnd(randomAccessFile, end, expectedStart);
+        if (expectedEnd == -1) {
+          expectedEnd = text.length();
+        }
+      }
+      final FileSpec spec = new FileSpec();
+      spec.setPath("search.txt");
+      spec.setStartSearch(start);
+      spec.setEndSearch(end);
+      final String imported =
+          FileImport.bufferToText(fileImport.importFromFile(dir, spec).getBuffer());
+      assertEquals(text.substring((int) expectedStart, (int) expectedEnd), imported,
+          text + " from " + start + " to " + end);
+    }
+  }
+
+  @Test
+  void nonAscii() throws IOException {
+    Files.writeString(dir.resolve("accents.txt"),
+        "première ligne\n« début » ici\ncontenu\nla fin é\nsuite\n", StandardCharsets.UTF_8);
+    final FileSpec spec = new FileSpec();
+    spec.setPath("accents.txt");
+    spec.setStartSearch("« début »");
+    spec.setEndSearch("fin é");
+    final String imported =
+        FileImport.bufferToText(new FileImport().importFromFile(dir, spec).getBuffer());
+    assertEquals("« début » ici\ncontenu\nla fin é", imported);
+  }
+
+  /**
+   * Searches for markers near the end of a large generated file
+   */
+  @Test
+  void benchmark() throws IOException {
+    final int lines = 20000;
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 1; i <= lines; i++) {
+      sb.append("  <fixr:field id=\"").append(i).append("\" name=\"Field").append(i)
+          .append("\" type=\"String\"/>\n");
+    }
+    final Path path = dir.resolve("big.xml");
+    Files.writeString(path, sb);
+    final String start = "name=\"Field" + (lines - 100) + "\"";
+    final String end = "name=\"Field" + (lines - 50) + "\"";
+
+    long begin = System.nanoTime();
+    long readLineLength;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(path.toFile(), "r")) {
+      final long startPosition = readLineStart(randomAccessFile, start);
+      readLineLength = readLineEnd(randomAccessFile, end, startPosition) - startPosition;
+    }
+    final long readLine = System.nanoTime() - begin;
+
+    final FileSpec spec = new FileSpec();
+    spec.setPath("big.xml");
+    spec.setStartSearch(start);
+    spec.setEndSearch(end);
+    begin = System.nanoTime();
+    final long mappedLength =
+        new FileImport().importFromFile(dir, spec).getBuffer().remaining();
+    final long mapped = System.nanoTime() - begin;
+    assertEquals(readLineLength, mappedLength);
+
+    out.format("Searched a file of %d lines (%d bytes)%n", lines, sb.length());
+    out.format("RandomAccessFile.readLine %d us%n", readLine / 1000);
+    out.format("Boyer-Moore-Horspool on mapped buffer %d us%n", mapped / 1000);
+  }
+}
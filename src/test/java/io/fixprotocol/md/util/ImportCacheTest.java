@@ -0,0 +1,125 @@
+package io.fixprotocol.md.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.md.event.DocumentParser;
+
+class ImportCacheTest {
+
+  @TempDir
+  Path dir;
+
+  private static FileSpec lines(String path, int start, int end) {
+    final FileSpec spec = new FileSpec();
+    spec.setPath(path);
+    spec.setStartLinenumber(start);
+    spec.setEndLinenumber(end);
+    return spec;
+  }
+
+  @Test
+  void hitsAndMisses() throws IOException {
+    Files.writeString(dir.resolve("a.txt"), "one\ntwo\nthree\n");
+    final ImportCache cache = new ImportCache();
+    final String text = cache.importText(dir, lines("a.txt", 2, 3));
+    assertEquals("two\nthree\n", text);
+    assertSame(text, cache.importText(dir, lines("a.txt", 2, 3)));
+    assertEquals("one\n", cache.importText(dir, lines("a.txt", 1, 1)));
+    // same file resolved from another directory
+    assertSame(text, cache.importText(dir.resolve("sub").resolve(".."), lines("a.txt", 2, 3)));
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertEquals(2, cache.getSize());
+    assertEquals(14, cache.getTotalBytes());
+
+    // a changed file is read again
+    Files.writeString(dir.resolve("a.txt"), "zero\none\ntwo\nthree\n");
+    Files.setLastModifiedTime(dir.resolve("a.txt"),
+        FileTime.fromMillis(System.currentTimeMillis() + 10000));
+    assertEquals("one\ntwo\n", cache.importText(dir, lines("a.txt", 2, 3)));
+    assertEquals(3, cache.getMisses());
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() throws IOException {
+    for (int i = 0; i < 4; i++) {
+      Files.writeString(dir.resolve(i + ".txt"), Integer.toString(i).repeat(100));
+    }
+    final ImportCache cache = new ImportCache(250);
+    final FileSpec[] specs = new FileSpec[4];
+    for (int i = 0; i < 4; i++) {
+      specs[i] = new FileSpec();
+      specs[i].setPath(i + ".txt");
+    }
+    cache.importText(dir, specs[0]);
+    cache.importText(dir, specs[1]);
+    cache.importText(dir, specs[0]);
+    // evicts 1, the least recently used
+    cache.importText(dir, specs[2]);
+    assertEquals(1, cache.getEvictions());
+    assertEquals(200, cache.getTotalBytes());
+    cache.importText(dir, specs[0]);
+    assertEquals(2, cache.getHits());
+    cache.importText(dir, specs[1]);
+    assertEquals(4, cache.getMisses());
+    assertEquals(2, cache.getEvictions());
+
+    // too large to cache
+    Files.writeString(dir.resolve("big.txt"), "x".repeat(300));
+    final FileSpec big = new FileSpec();
+    big.setPath("big.txt");
+    assertEquals(300, cache.importText(dir, big).length());
+    assertEquals(2, cache.getSize());
+    assertTrue(cache.getTotalBytes() <= cache.getMaxBytes());
+  }
+
+  @Test
+  void concurrent() throws Exception {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 1; i <= 100; i++) {
+      sb.append("line ").append(i).append('\n');
+    }
+    Files.writeString(dir.resolve("lines.txt"), sb);
+    final ImportCache cache = new ImportCache();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 400; i++) {
+        final int start = i % 10 * 10 + 1;
+        futures.add(executor.submit(() -> cache.importText(dir, lines("lines.txt", start, start))));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals("line " + (i % 10 * 10 + 1) + "\n", futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(400, cache.getHits() + cache.getMisses());
+    assertEquals(10, cache.getSize());
+  }
+
+  @Test
+  void sharedByParsers() throws IOException {
+    final ImportCache cache = new ImportCache();
+    final Path path = Path.of("src/test/resources/documentwithimport.md");
+    final List<Object> events = new ArrayList<>();
+    DocumentParser.builder().importCache(cache).build().parse(path, events::add, null);
+    DocumentParser.builder().importCache(cache).sectioned(true).build().parse(path, events::add,
+        null);
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+  }
+}
@@ -0,0 +1,106 @@
+package io.fixprotocol.md.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.md.app.Merge2Markdown;
+import io.fixprotocol.md.event.DocumentIterator;
+import io.fixprotocol.md.event.DocumentParser;
+import io.fixprotocol.md.util.FileImport.Imported;
+
+class ImportSessionTest {
+
+  private static final Path DOCUMENT = Path.of("src/test/resources/documentwithimport.md");
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void gauges() throws IOException {
+    Files.writeString(dir.resolve("a.txt"), "one\ntwo\n");
+    Files.writeString(dir.resolve("b.txt"), "three\n");
+    final FileSpec a = new FileSpec();
+    a.setPath("a.txt");
+    final FileSpec b = new FileSpec();
+    b.setPath("b.txt");
+    final int totalHandles = ImportSession.getTotalOpenHandles();
+    final long totalBytes = ImportSession.getTotalMappedBytes();
+
+    final Imported importedA;
+    final Imported importedB;
+    try (ImportSession session = new ImportSession()) {
+      importedA = session.importFromFile(dir, a);
+      importedB = session.importFromFile(dir, b);
+      assertEquals(2, session.getOpenHandles());
+      assertEquals(14, session.getMappedBytes());
+      assertEquals(totalHandles + 2, ImportSession.getTotalOpenHandles());
+      assertEquals(totalBytes + 14, ImportSession.getTotalMappedBytes());
+
+      session.release(importedA);
+      assertFalse(importedA.getChannel().isOpen());
+      assertEquals(1, session.getOpenHandles());
+      assertEquals(6, session.getMappedBytes());
+      assertEquals("three\n", session.importText(dir, b));
+      assertEquals(1, session.getOpenHandles());
+    }
+    // closing a session closes its remaining imports once
+    assertFalse(importedB.getChannel().isOpen());
+    importedB.close();
+    assertEquals(totalHandles, ImportSession.getTotalOpenHandles());
+    assertEquals(totalBytes, ImportSession.getTotalMappedBytes());
+  }
+
+  @Test
+  void closed() throws IOException {
+    Files.writeString(dir.resolve("a.txt"), "one\n");
+    final FileSpec spec = new FileSpec();
+    spec.setPath("a.txt");
+    final int totalHandles = ImportSession.getTotalOpenHandles();
+    final ImportSession session = new ImportSession();
+    session.close();
+    assertThrows(IOException.class, () -> session.importFromFile(dir, spec));
+    assertEquals(totalHandles, ImportSession.getTotalOpenHandles());
+
+    // a file that fails to import is not left open
+    spec.setPath("missing.txt");
+    try (ImportSession other = new ImportSession()) {
+      assertThrows(IOException.class, () -> other.importFromFile(dir, spec));
+      assertEquals(0, other.getOpenHandles());
+    }
+    assertEquals(totalHandles, ImportSession.getTotalOpenHandles());
+  }
+
+  @Test
+  void parsesReleaseImports() throws IOException {
+    final int totalHandles = ImportSession.getTotalOpenHandles();
+    final List<DocumentParser> parsers = List.of(DocumentParser.builder().build(),
+        DocumentParser.builder().streaming(true).build(),
+        DocumentParser.builder().sectioned(true).build(),
+        DocumentParser.builder().prefetchImports(true).build());
+    for (final DocumentParser parser : parsers) {
+      final List<Object> events = new ArrayList<>();
+      assertTrue(parser.parse(DOCUMENT, events::add, null));
+      assertTrue(events.size() > 1);
+      assertEquals(totalHandles, ImportSession.getTotalOpenHandles());
+    }
+
+    try (DocumentIterator iterator = DocumentParser.builder().build().open(DOCUMENT, null)) {
+      iterator.forEachRemaining(e -> {
+      });
+    }
+    assertEquals(totalHandles, ImportSession.getTotalOpenHandles());
+
+    Merge2Markdown.builder().inputFile(DOCUMENT.toString())
+        .outputFile(dir.resolve("merged.md").toString()).importDir("src/test/resources").build()
+        .merge();
+    assertEquals(totalHandles, ImportSession.getTotalOpenHandles());
+  }
+}
@@ -0,0 +1,157 @@
+package io.fixprotocol.md.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LineIndexTest {
+
+  private static PrintStream out;
+
+  @TempDir
+  Path dir;
+
+  @BeforeAll
+  static void setUpOnce() throws IOException {
+    new File("target/test").mkdirs();
+    out = new PrintStream(new FileOutputStream("target/test/LineIndexTest.txt"));
+  }
+
+  @AfterAll
+  static void cleanUpOnce() {
+    out.close();
+  }
+
+  // former implementation, retained for comparison
+  private static long readLines(RandomAccessFile randomAccessFile, int lineToSeek,
+      long startPosition) throws IOException {
+    randomAccessFile.seek(startPosition);
+    long position = 0;
+    for (int i = 0; i < lineToSeek; i++) {
+      position = randomAccessFile.getFilePointer();
+      if (randomAccessFile.readLine() == null) {
+        return -1;
+      }
+    }
+    return position;
+  }
+
+  @Test
+  void sameAsReadLine() throws IOException {
+    final Random random = new Random(23);
+    final String alphabet = "ab\n\r";
+    final Path path = dir.resolve("lines.txt");
+    for (int i = 0; i < 500; i++) {
+      final StringBuilder sb = new StringBuilder();
+      final int length = random.nextInt(30);
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      final byte[] bytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+      Files.write(path, bytes);
+      final LineIndex index = new LineIndex(ByteBuffer.wrap(bytes), bytes.length, 0);
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(path.toFile(), "r")) {
+        for (int line = 0; line <= 12; line++) {
+          assertEquals(readLines(randomAccessFile, line, 0), index.findLinenumber(line, 0),
+              sb + " line " + line);
+          // relative to the start of another line, as for an end line number
+          final long from = index.findLinenumber(3, 0);
+          if (from != -1) {
+            assertEquals(readLines(randomAccessFile, line, from), index.findLinenumber(line, from),
+                sb + " line " + line + " from " + from);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void cached() throws IOException {
+    final Path path = dir.resolve("cached.txt");
+    Files.writeString(path, "one\ntwo\nthree\n");
+    final FileImport fileImport = new FileImport();
+    final FileSpec spec = new FileSpec();
+    spec.setPath("cached.txt");
+    spec.setStartLinenumber(2);
+    spec.setEndLinenumber(2);
+    assertEquals("two\n",
+        FileImport.bufferToText(fileImport.importFromFile(dir, spec).getBuffer()));
+
+    final LineIndex index;
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+      index = LineIndex.of(path, file.getChannel());
+      assertSame(index, LineIndex.of(path, file.getChannel()));
+    }
+
+    // a changed file is indexed again
+    Files.writeString(path, "zero\none\ntwo\nthree\n");
+    Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+      assertNotSame(index, LineIndex.of(path, file.getChannel()));
+    }
+    assertEquals("one\n",
+        FileImport.bufferToText(fileImport.importFromFile(dir, spec).getBuffer()));
+  }
+
+  /**
+   * Imports many line ranges from one large file
+   */
+  @Test
+  void benchmark() throws IOException {
+    final int lines = 4000;
+    final int imports = 50;
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 1; i <= lines; i++) {
+      sb.append("| ").append(i).append(" | field ").append(i).append(" | description |\n");
+    }
+    final Path path = dir.resolve("big.md");
+    Files.writeString(path, sb);
+    final FileImport fileImport = new FileImport();
+    final FileSpec[] specs = new FileSpec[imports];
+    for (int i = 0; i < imports; i++) {
+      specs[i] = new FileSpec();
+      specs[i].setPath("big.md");
+      specs[i].setStartLinenumber(i * (lines / imports) + 1);
+      specs[i].setEndLinenumber(i * (lines / imports) + 10);
+    }
+
+    long start = System.nanoTime();
+    long readLineLength = 0;
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+      for (final FileSpec spec : specs) {
+        final long startPosition = readLines(file, spec.getStartLinenumber(), 0);
+        readLineLength += readLines(file,
+            spec.getEndLinenumber() - spec.getStartLinenumber() + 2, startPosition) - startPosition;
+      }
+    }
+    final long readLine = System.nanoTime() - start;
+
+    LineIndex.clearCache();
+    start = System.nanoTime();
+    long indexedLength = 0;
+    for (final FileSpec spec : specs) {
+      indexedLength += fileImport.importFromFile(dir, spec).getBuffer().remaining();
+    }
+    final long indexed = System.nanoTime() - start;
+    assertEquals(readLineLength, indexedLength);
+
+    out.format("Imported %d line ranges from a file of %d lines%n", imports, lines);
+    out.format("RandomAccessFile.readLine %d us%n", readLine / 1000);
+    out.format("Cached line index %d us%n", indexed / 1000);
+  }
+}